@@ -0,0 +1,208 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bench;
+
+import bufmgr.AccessStrategy;
+import bufmgr.BufMgr;
+import bufmgr.BufMgrConfig;
+import bufmgr.BufMgrStats;
+import bufmgr.MemoryDisk;
+import global.Convert;
+import global.GlobalConst;
+import global.Page;
+import global.PageId;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of pinning and unpinning pages, for each replacement policy and
+ * a few pool sizes, under these workloads over a database four times the size
+ * of the pool:
+ * <ul>
+ * <li>uniform: every page is equally likely;</li>
+ * <li>zipf: a Zipfian distribution with skew 0.99, a few pages are hot;</li>
+ * <li>scan: every thread scans the database from start to end, over and over;</li>
+ * <li>mixed: half of the pins are Zipfian lookups, and the other half scan
+ * with a bulk read access strategy.</li>
+ * </ul>
+ * One operation is one pin and unpin. The pages live on a simulated disk in
+ * memory, with the given latency per read and write. The hit ratio of each
+ * iteration is printed after it; run with "-prof gc" for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufMgrBench implements GlobalConst {
+
+  @Param({"1024", "16384"})
+  public int poolSize;
+
+  @Param({"Clock", "CostClock", "LRU-K", "2Q", "ARC"})
+  public String replacer;
+
+  @Param({"uniform", "zipf", "scan", "mixed"})
+  public String workload;
+
+  /** Microseconds a read or write takes. */
+  @Param({"0"})
+  public long latency;
+
+  /** The buffer manager under test. */
+  BufMgr bufmgr;
+
+  /** Number of pages in the database. */
+  int dbPages;
+
+  /** Page id of the first page of the database. */
+  int firstPid;
+
+  /** Shared by the threads drawing Zipfian pages. */
+  Zipf zipf;
+
+  /** Statistics at the start of the iteration. */
+  private BufMgrStats before;
+
+  /**
+   * Creates the buffer manager, and a database with a number in each page.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    dbPages = 4 * poolSize;
+    BufMgrConfig config = new BufMgrConfig(poolSize);
+    config.replacer = replacer;
+    config.diskBackend = new MemoryDisk(dbPages, latency, latency, 0, 0);
+    bufmgr = new BufMgr(config);
+
+    Page page = new Page();
+    PageId pid = bufmgr.newPage(page, dbPages);
+    bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    firstPid = pid.pid;
+    for (; pid.pid < firstPid + dbPages; pid.pid++) {
+      bufmgr.pinPage(pid, page, PIN_DISKIO);
+      Convert.setIntValue(pid.pid, 0, page.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+    bufmgr.flushAllPages();
+    zipf = new Zipf(dbPages, 0.99, 42);
+  }
+
+  @Setup(Level.Iteration)
+  public void startIteration() {
+    before = bufmgr.getStats();
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration() {
+    BufMgrStats after = bufmgr.getStats();
+    long hits = after.getHits() - before.getHits();
+    long misses = after.getMisses() - before.getMisses();
+    System.out.printf("hit ratio %.2f%% (%d hits, %d misses, %d evictions)%n",
+        hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses), hits, misses,
+        after.getEvictions() - before.getEvictions());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    bufmgr.shutdown();
+  }
+
+  /**
+   * The state of one benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Worker {
+
+    /** Holds the pinned page. */
+    final Page page = new Page();
+
+    /** Identifies the page to pin. */
+    final PageId pid = new PageId();
+
+    /** The next page of the thread's scan, as an offset into the database. */
+    int cursor;
+
+    /** Confines the scans of the mixed workload, or null. */
+    AccessStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void setUp(BufMgrBench bench) {
+      cursor = ThreadLocalRandom.current().nextInt(bench.dbPages);
+      if (bench.workload.equals("mixed"))
+        strategy = bench.bufmgr.newAccessStrategy(AccessStrategy.BULKREAD);
+    }
+
+  } // public static class Worker
+
+  /**
+   * Pins and unpins one page of the workload.
+   */
+  @Benchmark
+  @Threads(1)
+  public int pinUnpin(Worker worker) {
+    return access(worker);
+  }
+
+  /**
+   * Pins and unpins one page of the workload, from as many threads as there
+   * are cores.
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public int pinUnpinShared(Worker worker) {
+    return access(worker);
+  }
+
+  /**
+   * Pins the next page of the workload, reads its number, and unpins it.
+   */
+  private int access(Worker worker) {
+    AccessStrategy strategy = null;
+    int offset;
+    switch (workload) {
+      case "uniform":
+        offset = ThreadLocalRandom.current().nextInt(dbPages);
+        break;
+      case "zipf":
+        offset = zipf.next(ThreadLocalRandom.current().nextDouble());
+        break;
+      case "scan":
+        offset = worker.cursor = (worker.cursor + 1) % dbPages;
+        break;
+      default:
+        if (ThreadLocalRandom.current().nextBoolean()) {
+          offset = zipf.next(ThreadLocalRandom.current().nextDouble());
+        } else {
+          offset = worker.cursor = (worker.cursor + 1) % dbPages;
+          strategy = worker.strategy;
+        }
+        break;
+    }
+    worker.pid.pid = firstPid + offset;
+    bufmgr.pinPage(worker.pid, worker.page, PIN_DISKIO, strategy);
+    int value = Convert.getIntValue(0, worker.page.getData());
+    bufmgr.unpinPage(worker.pid, UNPIN_CLEAN);
+    return value;
+  }
+
+} // public class BufMgrBench implements GlobalConst
@@ -0,0 +1,62 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bench;
+
+import java.util.Random;
+
+/**
+ * Draws numbers from 0 to n - 1 with a Zipfian distribution: number i comes
+ * up in proportion to 1 / (i + 1)^theta. The hot numbers are scattered over
+ * the range, so that they do not all sit in one run of pages.
+ */
+class Zipf {
+
+  /** Cumulative probability of each rank. */
+  private final double[] cdf;
+
+  /** The number of each rank. */
+  private final int[] numbers;
+
+  /**
+   * Constructs the distribution over n numbers with the given skew.
+   */
+  public Zipf(int n, double theta, long seed) {
+    cdf = new double[n];
+    double sum = 0;
+    for (int i = 0; i < n; i++)
+      cdf[i] = sum += 1 / Math.pow(i + 1, theta);
+    for (int i = 0; i < n; i++)
+      cdf[i] /= sum;
+
+    numbers = new int[n];
+    for (int i = 0; i < n; i++)
+      numbers[i] = i;
+    Random random = new Random(seed);
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = numbers[i];
+      numbers[i] = numbers[j];
+      numbers[j] = swap;
+    }
+  }
+
+  /**
+   * Draws a number, given a uniform random number from 0 to 1.
+   */
+  public int next(double uniform) {
+    int lo = 0, hi = cdf.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (cdf[mid] < uniform)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return numbers[lo];
+  }
+
+} // class Zipf
@@ -0,0 +1,172 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * The "ARC" replacement policy (Megiddo and Modha). Resident pages are on T1
+ * (seen once recently) or T2 (seen at least twice), and recently evicted
+ * ones are remembered on B1 and B2. A miss on B1 means T1 was too small and
+ * a miss on B2 means T2 was, so the target size of T1 adapts to the workload.
+ * 
+ * <p>The buffer manager picks the victim before it tells the replacer which
+ * page comes in, so unlike the paper the target is adapted after the victim
+ * was chosen; the effect is a delay of one miss.
+ * 
+ * <p>Hits take no lock: they only mark the frame (see {@link Replacer#hit}),
+ * and a marked frame is moved to the end of T2 when it comes up for
+ * replacement, rather than when it is hit. That makes this the clock-like
+ * variant of ARC, much like CAR (Bansal and Modha).
+ */
+class ARC extends Replacer {
+
+  /** The lists frames can be on. */
+  private static final int FREE = 0, T1 = 1, T2 = 2;
+
+  /** The frames on each list. */
+  private final FrameLists lists;
+
+  /** Page held by each frame, for B1 or B2 once it is evicted. */
+  private int[] pids;
+
+  /** Recently evicted pages from T1 and T2. */
+  private GhostList b1, b2;
+
+  /** Number of frames in the pool. */
+  private int c;
+
+  /** Target size of T1. */
+  private int p;
+
+  /**
+   * Constructs an ARC replacer.
+   */
+  public ARC(BufMgr bufmgr) {
+
+    super(bufmgr);
+    c = bufmgr.getNumBuffers();
+    lists = new FrameLists(c, 3);
+    pids = new int[c];
+    b1 = new GhostList(c);
+    b2 = new GhostList(c);
+    for (int i = 0; i < c; i++) {
+      pids[i] = INVALID_PAGEID;
+      lists.addLast(FREE, i);
+    }
+
+  } // public ARC(BufMgr bufmgr)
+
+  /**
+   * Notifies the replacer that the pool changes size.
+   */
+  public synchronized void resize(int numbufs) {
+
+    frametab = bufmgr.frametab;
+    lists.grow(numbufs);
+    if (numbufs > pids.length) {
+      pids = java.util.Arrays.copyOf(pids, numbufs);
+    }
+    for (int f = c; f < numbufs; f++) {
+      pids[f] = INVALID_PAGEID;
+      lists.addLast(FREE, f);
+    }
+    for (int f = numbufs; f < c; f++)
+      lists.remove(f);
+    c = numbufs;
+    p = Math.min(p, c);
+    b1 = b1.resized(c);
+    b2 = b2.resized(c);
+
+  } // public synchronized void resize(int numbufs)
+
+  /**
+   * Notifies the replacer of a new page.
+   */
+  public synchronized void newPage(FrameDesc fdesc) {
+
+    int f = fdesc.index;
+    if (f >= c)
+      return; // being drained
+    if (pids[f] != INVALID_PAGEID) {
+      if (lists.listOf(f) == T1)
+        b1.add(pids[f], 0);
+      else if (lists.listOf(f) == T2)
+        b2.add(pids[f], 0);
+    }
+
+    int pid = fdesc.getPid();
+    pids[f] = pid;
+    meta.setState(f, FRESH);
+    if (b1.remove(pid) != -1) {
+      p = Math.min(c, p + Math.max(b2.size() / Math.max(1, b1.size()), 1));
+      lists.addLast(T2, f);
+    } else if (b2.remove(pid) != -1) {
+      p = Math.max(0, p - Math.max(b1.size() / Math.max(1, b2.size()), 1));
+      lists.addLast(T2, f);
+    } else {
+      lists.addLast(T1, f);
+    }
+
+    // keep the directory at most twice the size of the pool
+    if (lists.size(T1) + b1.size() > c)
+      b1.removeOldest();
+    if (lists.size(T1) + lists.size(T2) + b1.size() + b2.size() > 2 * c)
+      b2.removeOldest();
+  }
+
+  /**
+   * Notifies the replacer of a free page.
+   */
+  public synchronized void freePage(FrameDesc fdesc) {
+    if (fdesc.index >= c)
+      return;
+    pids[fdesc.index] = INVALID_PAGEID;
+    meta.setState(fdesc.index, IDLE);
+    lists.addLast(FREE, fdesc.index);
+  }
+
+  /**
+   * Notifies the replacer of a pined page.
+   */
+  public void pinPage(FrameDesc fdesc) {
+    hit(fdesc);
+  }
+
+  /**
+   * Notifies the replacer of an optimistic read, which counts as a hit.
+   */
+  public void readPage(FrameDesc fdesc) {
+    hit(fdesc);
+  }
+
+  /**
+   * Notifies the replacer of an unpinned page.
+   */
+  public void unpinPage(FrameDesc fdesc) {
+    // the reference was recorded when the page was pinned
+  }
+
+  /**
+   * Selects the best frame to use for pinning a new page.
+   * 
+   * @return victim frame number, or -1 if none available
+   */
+  public synchronized int pickVictim() {
+
+    int victim = claimFirst(lists, FREE);
+    if (victim != -1)
+      return victim;
+
+    // replace from T1 while it is over its target, otherwise from T2
+    boolean t1first = lists.size(T1) > 0 && lists.size(T1) >= Math.max(p, 1);
+    victim = claimLeastRecent(lists, t1first ? T1 : T2, T2);
+    if (victim == -1)
+      victim = claimLeastRecent(lists, t1first ? T2 : T1, T2);
+    return victim;
+
+  } // public int pickVictim()
+
+} // class ARC extends Replacer
@@ -0,0 +1,92 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+
+/**
+ * A buffer access strategy for bulk operations, such as sequential scans.
+ * It keeps a small ring of the frames its misses were loaded into, and
+ * recycles them for its next misses, rather than letting the replacer evict
+ * pages that other callers are still using. A strategy belongs to one caller,
+ * but pages read ahead for it are loaded into its ring by background threads.
+ * In a partitioned pool, the strategy keeps one ring per partition.
+ * 
+ * @see BufMgr#newAccessStrategy
+ */
+public class AccessStrategy implements GlobalConst {
+
+  /** Strategy types; they differ in the size of the ring. */
+  public static final int BULKREAD = 1;
+  public static final int BULKWRITE = 2;
+  public static final int VACUUM = 3;
+
+  /** Ring of frames the strategy loaded pages into, or -1; one per partition. */
+  private final int[][] frames;
+
+  /** The page each ring frame was loaded with. */
+  private final int[][] pids;
+
+  /** The next ring slot to recycle, in each ring. */
+  private final int[] current;
+
+  /**
+   * Constructs a strategy for the given pool, with a ring that holds the given
+   * number of bytes (but never more than an eighth of the pool).
+   */
+  AccessStrategy(int numbufs, int ringBytes) {
+    this(numbufs, ringBytes, 1);
+  }
+
+  /**
+   * Constructs a strategy for the given partitioned pool, with rings that
+   * together hold the given number of bytes (but never more than an eighth
+   * of the pool).
+   */
+  AccessStrategy(int numbufs, int ringBytes, int partitions) {
+    int size = Math.max(1, Math.min(ringBytes / PAGE_SIZE, numbufs / 8) / partitions);
+    frames = new int[partitions][size];
+    pids = new int[partitions][size];
+    current = new int[partitions];
+    for (int[] ring : frames)
+      java.util.Arrays.fill(ring, -1);
+  }
+
+  /**
+   * Gets the number of frames in the rings.
+   */
+  public int getRingSize() {
+    return frames.length * frames[0].length;
+  }
+
+  /**
+   * Claims the frame in the current slot of a partition's ring, if it still holds the page
+   * the strategy loaded into it and nobody else has it pinned.
+   * 
+   * @return the claimed frame number, or -1 if it can't be recycled
+   */
+  synchronized int claimCurrent(int part, FrameDesc[] frametab) {
+    int frame = frames[part][current[part]];
+    if (frame == -1 || frame >= frametab.length || !frametab[frame].tryClaim())
+      return -1;
+    if (frametab[frame].getPid() == pids[part][current[part]])
+      return frame;
+    frametab[frame].release(0); // somebody else reused it
+    return -1;
+  }
+
+  /**
+   * Puts the frame a page was just loaded into in the current slot of its partition's ring, and
+   * moves on to the next one.
+   */
+  synchronized void loaded(int part, int frame, int pid) {
+    frames[part][current[part]] = frame;
+    pids[part][current[part]] = pid;
+    current[part] = (current[part] + 1) % frames[part].length;
+  }
+
+} // public class AccessStrategy implements GlobalConst
@@ -0,0 +1,201 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A buffer pool kept off the heap: the frames are fixed-size slices of a few
+ * large direct buffers, so even a huge pool costs the garbage collector next
+ * to nothing. Callers still work on heap Pages, so a frame gets a Page view
+ * while it is in use; the view is copied in when the first pin is taken. A
+ * dirty frame keeps its view, which is what gets written; a clean frame drops
+ * it when its last pin is dropped, and any frame drops it when it is replaced.
+ *
+ * <p>A Page can only wrap a heap array, not a slice of the arena, so the heap
+ * still holds one page for every frame that is pinned or dirty: the arena
+ * only saves heap for the clean, unpinned part of the pool. A pool mostly
+ * dirty between checkpoints needs a background writer, or a heap as large
+ * as the pool. Each view is a new array, so pinning a cold frame allocates.
+ * The arena is allocated in segments of a few megabytes, so the pool can grow
+ * and shrink a segment at a time while it is in use.
+ */
+class ArenaFramePool extends FramePool {
+
+  /** Frames per arena segment, 4MB worth. */
+  private static final int SEGMENT_FRAMES = Math.max(1, (4 << 20) / PAGE_SIZE);
+
+  /** The arena, in segments of SEGMENT_FRAMES frames. */
+  private volatile Segment[] segments = new Segment[0];
+
+  /** Number of frames in the pool. */
+  private volatile int numbufs;
+
+  /**
+   * A segment of the arena, and the page views of its pinned frames.
+   */
+  private static final class Segment {
+
+    /** The memory of the segment's frames. */
+    final ByteBuffer memory = ByteBuffer.allocateDirect(SEGMENT_FRAMES * PAGE_SIZE);
+
+    /** The page view of each pinned frame, or null. */
+    final AtomicReferenceArray<Page> views = new AtomicReferenceArray<Page>(SEGMENT_FRAMES);
+
+  } // private static final class Segment
+
+  /**
+   * Constructs a pool of the given number of frames.
+   */
+  public ArenaFramePool(int numbufs, DiskBackend disk) {
+    super(disk);
+    resize(numbufs);
+  }
+
+  public int size() {
+    return numbufs;
+  }
+
+  public synchronized void resize(int numbufs) {
+    int count = (numbufs + SEGMENT_FRAMES - 1) / SEGMENT_FRAMES;
+    Segment[] segs = java.util.Arrays.copyOf(segments, count); // dropped segments are freed by the collector
+    for (int i = segments.length; i < count; i++)
+      segs[i] = new Segment();
+    segments = segs;
+    this.numbufs = numbufs;
+  }
+
+  /**
+   * Gets the page views of the segment holding a frame.
+   */
+  private AtomicReferenceArray<Page> views(int frame) {
+    return segments[frame / SEGMENT_FRAMES].views;
+  }
+
+  public Page attach(FrameDesc fdesc) {
+
+    AtomicReferenceArray<Page> views = views(fdesc.index);
+    int i = fdesc.index % SEGMENT_FRAMES;
+    Page view = views.get(i);
+    if (view != null)
+      return view; // shared with the other pinners
+
+    synchronized (fdesc) {
+      view = views.get(i);
+      if (view == null) {
+        view = new Page();
+        load(fdesc.index, view.getData());
+        views.set(i, view);
+      }
+      return view;
+    }
+  }
+
+  /**
+   * Drops the view of a frame that is clean, so the arena holds the same data;
+   * the frame is not claimed, so pinners never wait for this. A dirty frame
+   * keeps its view until it is written, or replaced.
+   */
+  public void detach(FrameDesc fdesc) {
+
+    if (fdesc.getDirty())
+      return; // checked again below; this only saves taking the lock
+    AtomicReferenceArray<Page> views = views(fdesc.index);
+    int i = fdesc.index % SEGMENT_FRAMES;
+    synchronized (fdesc) { // new views are only made under the same lock
+      Page view = views.get(i);
+      int pid = fdesc.getPid();
+      // the dirty bit after the pin count: a pinner that wrote the view and
+      // left since sets the bit before it drops its pin, so we see one or the
+      // other; a held frame is being written from its view
+      if (view == null || fdesc.getPinCount() != 0 || fdesc.getDirty() || fdesc.isHeld())
+        return;
+      views.set(i, null);
+
+      // a pinner that came in meanwhile may have taken the view before it was
+      // dropped, and written to it; it keeps it then, whether it is still
+      // pinned or already marked it dirty. One that comes later sees it
+      // dropped, and loads the arena once we let go of the lock. If the frame
+      // was replaced meanwhile, the view is stale, and stays dropped.
+      if ((fdesc.getPinCount() > 0 || fdesc.getDirty() || fdesc.isHeld()) && fdesc.getPid() == pid && !fdesc.loading)
+        views.set(i, view);
+    }
+  }
+
+  public void read(PageId pageno, int frame) {
+    views(frame).set(frame % SEGMENT_FRAMES, null); // the frame is claimed, and its old view is stale
+    disk.read(pageno.pid, slice(frame));
+  }
+
+  public CompletableFuture<Void> readAsync(PageId pageno, int frame, Executor executor) {
+    views(frame).set(frame % SEGMENT_FRAMES, null);
+    return disk.readAsync(pageno.pid, slice(frame), executor);
+  }
+
+  public void write(int pid, int frame) {
+    disk.write(pid, buffer(frame));
+  }
+
+  public void copyIn(int frame, Page page) {
+    views(frame).set(frame % SEGMENT_FRAMES, null);
+    store(frame, page.getData());
+  }
+
+  public boolean copyOut(int frame, Page page) {
+    Segment[] segs = segments; // may be shrinking
+    if (frame / SEGMENT_FRAMES >= segs.length)
+      return false;
+    Page view = segs[frame / SEGMENT_FRAMES].views.get(frame % SEGMENT_FRAMES);
+    if (view != null)
+      page.copyPage(view); // the last pin was just dropped, and the view not stored yet
+    else
+      segs[frame / SEGMENT_FRAMES].memory.get((frame % SEGMENT_FRAMES) * PAGE_SIZE, page.getData(), 0, PAGE_SIZE);
+    return true;
+  }
+
+  protected ByteBuffer target(int frame) {
+    views(frame).set(frame % SEGMENT_FRAMES, null); // the frame's old view is stale
+    return slice(frame);
+  }
+
+  protected ByteBuffer buffer(int frame) {
+    Page view = views(frame).get(frame % SEGMENT_FRAMES);
+    if (view != null)
+      store(frame, view.getData()); // keep the arena in sync with what goes to disk
+    return slice(frame);
+  }
+
+  /**
+   * Gets a view of a frame's memory, for I/O straight from or into the arena.
+   */
+  public ByteBuffer slice(int frame) {
+    ByteBuffer buf = segments[frame / SEGMENT_FRAMES].memory.duplicate();
+    int off = (frame % SEGMENT_FRAMES) * PAGE_SIZE;
+    buf.limit(off + PAGE_SIZE).position(off);
+    return buf.slice();
+  }
+
+  /**
+   * Copies a frame out of the arena.
+   */
+  private void load(int frame, byte[] data) {
+    segments[frame / SEGMENT_FRAMES].memory.get((frame % SEGMENT_FRAMES) * PAGE_SIZE, data, 0, PAGE_SIZE);
+  }
+
+  /**
+   * Copies a frame into the arena.
+   */
+  private void store(int frame, byte[] data) {
+    segments[frame / SEGMENT_FRAMES].memory.put((frame % SEGMENT_FRAMES) * PAGE_SIZE, data, 0, PAGE_SIZE);
+  }
+
+} // class ArenaFramePool extends FramePool
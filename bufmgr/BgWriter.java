@@ -0,0 +1,157 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The background writer. Its threads trickle dirty, unpinned frames to disk
+ * just ahead of the replacer, so that a miss almost always finds a clean
+ * victim and costs one I/O instead of two.
+ */
+class BgWriter {
+
+  /** The buffer manager whose frames are written. */
+  private final BufMgr bufmgr;
+
+  /** The writer threads; each writes the frames whose index maps to it. */
+  private final Thread[] threads;
+
+  /** Number of clean, unpinned frames to keep ahead of the replacer. */
+  private final int target;
+
+  /** Time to sleep between rounds, in nanoseconds. */
+  private final long delay;
+
+  /** Frames the replacer passed over because they were dirty, to be written first; as long as the pool. */
+  private volatile ArrayBlockingQueue<Integer> queued;
+
+  /** Set when the writer should stop. */
+  private volatile boolean stopped;
+
+  /**
+   * Constructs and starts a background writer.
+   * 
+   * @param bufmgr the buffer manager whose frames are written
+   * @param numThreads number of writer threads
+   * @param target number of clean frames to keep ahead of the replacer
+   * @param delay milliseconds to sleep between rounds
+   */
+  public BgWriter(BufMgr bufmgr, int numThreads, int target, long delay) {
+
+    this.bufmgr = bufmgr;
+    this.target = target;
+    this.delay = TimeUnit.MILLISECONDS.toNanos(delay);
+    queued = new ArrayBlockingQueue<Integer>(Math.max(1, bufmgr.frametab.length));
+    threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      final int me = i;
+      threads[i] = new Thread("bufmgr-bgwriter-" + i) {
+        public void run() {
+          while (!stopped) {
+            writeQueued();
+            writeAhead(me);
+            LockSupport.parkNanos(BgWriter.this.delay);
+          }
+        }
+      };
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+  } // public BgWriter(BufMgr bufmgr, int numThreads, int target, long delay)
+
+  /**
+   * Wakes up the writer threads early, e.g. because a miss had to write.
+   */
+  public void wakeup() {
+    for (Thread thread : threads)
+      LockSupport.unpark(thread);
+  }
+
+  /**
+   * Queues a dirty frame that the replacer passed over, to be written before
+   * the replacer comes back to it, and wakes up a writer thread. The frame is
+   * dropped if the queue is full; the replacer writes it itself then.
+   * 
+   * @return true if the frame was queued
+   */
+  public boolean queue(int frame) {
+    if (!queued.offer(frame))
+      return false;
+    LockSupport.unpark(threads[frame % threads.length]);
+    return true;
+  }
+
+  /**
+   * Adapts the queue to a pool of the given size. Frames queued meanwhile on
+   * the old queue may be lost; the replacer writes those itself.
+   */
+  public synchronized void resize(int numbufs) {
+    ArrayBlockingQueue<Integer> old = queued;
+    ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>(Math.max(1, numbufs));
+    old.drainTo(queue, queue.remainingCapacity());
+    queued = queue;
+  }
+
+  /**
+   * Stops the writer threads.
+   */
+  public void shutdown() {
+    stopped = true;
+    wakeup();
+  }
+
+  /**
+   * Writes the frames the replacer queued, unless they were pinned or
+   * replaced meanwhile.
+   */
+  private void writeQueued() {
+
+    Integer frame;
+    while (!stopped && (frame = queued.poll()) != null) {
+      FrameDesc[] frametab = bufmgr.frametab;
+      if (frame >= frametab.length)
+        continue; // the pool shrank
+      FrameDesc fdesc = frametab[frame];
+      if (fdesc.getPinCount() == 0)
+        bufmgr.flushFrame(fdesc, fdesc.getPid(), false);
+    }
+
+  } // private void writeQueued()
+
+  /**
+   * Does one round of writing: walks the frames from the replacer's next
+   * victim onwards, until enough of them are clean and unpinned.
+   */
+  private void writeAhead(int me) {
+
+    if (bufmgr.tracker.getDirtyCount() == 0)
+      return; // nothing to write, so no need to walk the frames
+
+    FrameDesc[] frametab = bufmgr.frametab;
+    int numbufs = frametab.length;
+    int start = bufmgr.replacer.nextVictimHint();
+    int clean = 0;
+
+    for (int i = 0; i < numbufs && clean < target && !stopped; i++) {
+
+      int frame = (start + i) % numbufs;
+      FrameDesc fdesc = frametab[frame];
+      if (fdesc.getPinCount() != 0)
+        continue; // not a victim candidate right now
+
+      // the other threads take care of the frames that map to them
+      if (!fdesc.getDirty() || frame % threads.length != me || bufmgr.flushFrame(fdesc, fdesc.getPid(), false))
+        clean++;
+    }
+
+  } // private void writeAhead(int me)
+
+} // class BgWriter
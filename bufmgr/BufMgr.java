@@ -9,31 +9,165 @@ package bufmgr;
 import global.GlobalConst;
 import global.Page;
 import global.PageId;
-import java.util.HashMap;
 import global.Minibase;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * <h3>Minibase Buffer Manager</h3>
  * The buffer manager reads disk pages into a main memory page as needed. The
  * collection of main memory pages (called frames) used by the buffer manager
- * for this purpose is called the buffer pool. This is just an array of Page
- * objects. The buffer manager is used by access methods, heap files, and
+ * for this purpose is called the buffer pool. This is an array of Page
+ * objects, or one off-heap arena (see {@link BufMgrConfig#offHeap}). The
+ * buffer manager is used by access methods, heap files, and
  * relational operators to read, write, allocate, and de-allocate pages.
+ * 
+ * All public methods are thread-safe. Frames are pinned with atomic pin counts
+ * and the page table is striped, so threads pinning resident pages do not
+ * serialize on a global lock. For many cores, the pool can also be split into
+ * partitions (see {@link BufMgrConfig#partitions}): independent buffer
+ * managers, each with its own frames, page table and replacer, that pages
+ * are routed to by a hash of their page number. Read-mostly pages can be
+ * copied out without a pin at all, see {@link #readPage}.
  */
 public class BufMgr implements GlobalConst {
 
+    /** Frames drained at a time when the pool shrinks. */
+    private static final int RESIZE_CHUNK = 1024;
+
+    /** Pages of a partition come in extents of this many consecutive pages. */
+    private static final int PART_EXTENT = 8;
+
+    /** Optimistic reads of a page to try before readPage pins it instead. */
+    private static final int READ_TRIES = 4;
+
+    /** Numbers the buffer managers registered with the MBean server. */
+    private static final AtomicInteger mbeanIds = new AtomicInteger();
+
+    /** The partitions of the pool, or null if it is not partitioned. */
+    protected BufMgr[] parts;
+
+    /** The buffer manager this one is a partition of, or this one. */
+    protected BufMgr owner;
+
+    /** Index of this partition in the owner's. */
+    protected int partIndex;
+
+    /** Frames this partition lent to others; they stay claimed until given back. */
+    private final java.util.ArrayList<FrameDesc> lent = new java.util.ArrayList<FrameDesc>();
+
+    /** Number of frames in the lent list. */
+    private volatile int numLent;
+
+    /** Number of frames the partition was given; it borrows back up to this many. */
+    private volatile int share;
+
     /** Actual pool of pages (can be viewed as an array of byte arrays). */
-    protected Page[] bufpool;
+    protected FramePool bufpool;
 
     /** Array of descriptors, each containing the pin count, dirty status, etc\
 	. */
-    protected FrameDesc[] frametab;
+    protected volatile FrameDesc[] frametab;
+
+    /** Where the pages are stored. */
+    protected DiskBackend disk;
+
+    /** Set of dirty frames, and live counts of pinned and dirty frames. */
+    protected FrameTracker tracker;
 
     /** Maps current page numbers to frames; used for efficient lookups. */
-    protected HashMap<Integer, FrameDesc> pagemap;
+    protected PageTable pagemap;
 
     /** The replacement policy to use. */
     protected Replacer replacer;
+
+    /** Recent pin frequency of pages, for admission; or null to admit every page. */
+    protected volatile FrequencySketch admission;
+
+    /** The frames pages that were not admitted are kept in. */
+    protected volatile AccessStrategy probation;
+
+    /** Writes dirty frames ahead of the replacer, or null if disabled. */
+    protected BgWriter bgwriter;
+
+    /** Number of pages to read ahead of a sequential scan, or 0 for none. */
+    protected int readAheadPages;
+
+    /** Number of background I/O threads. */
+    protected int ioThreads;
+
+    /** Milliseconds a pin waits for a frame when all are pinned, or 0 to fail at once. */
+    protected long pinWait;
+
+    /** Pins waiting for a frame queue up here; the lock is fair, so they are served in order. */
+    private final ReentrantLock frameLock = new ReentrantLock(true);
+
+    /** Signalled when a frame becomes unpinned while pins are waiting. */
+    private final Condition frameFreed = frameLock.newCondition();
+
+    /** Number of pins waiting for a frame. */
+    private volatile int frameWaiters;
+
+    /** Runs prefetches in the background; created when first needed. */
+    private volatile ExecutorService ioExecutor;
+
+    /** Number of pages replaced in the pool. */
+    protected final LongAdder evictions = new LongAdder();
+
+    /** Number of replaced pages that had to be written before the new page could be read. */
+    protected final LongAdder syncWrites = new LongAdder();
+
+    /** Number of pins that found their page in the pool. */
+    protected final LongAdder hits = new LongAdder();
+
+    /** Number of pins that had to bring their page in. */
+    protected final LongAdder misses = new LongAdder();
+
+    /** Number of pages read ahead or prefetched. */
+    protected final LongAdder readAheads = new LongAdder();
+
+    /** Number of times the replacer was asked for a victim. */
+    protected final LongAdder victimSearches = new LongAdder();
+
+    /** Number of missed pages that were kept in probation instead of replacing the victim. */
+    protected final LongAdder admissionRejects = new LongAdder();
+
+    /** Number of dirty frames the replacer passed over and queued for the background writer. */
+    protected final LongAdder handOffs = new LongAdder();
+
+    /** Time it took pins to bring their page in. */
+    protected final LatencyHistogram missLatency = new LatencyHistogram();
+
+    /** Time it took the sampled pins. */
+    protected final LatencyHistogram pinLatency = new LatencyHistogram();
+
+    /** Time it took the sampled unpins. */
+    protected final LatencyHistogram unpinLatency = new LatencyHistogram();
+
+    /** One in this many pins and unpins is timed, or 0 for none. */
+    protected int statsSample;
+
+    /** Name of the buffer manager in the MBean server, or null if not registered. */
+    private ObjectName mbeanName;
+
+    /** Records the calls to the buffer manager, or null if not tracing. */
+    private volatile TraceRecorder trace;
 //-------------------------------------------------------------
 
 
@@ -45,20 +179,336 @@ public class BufMgr implements GlobalConst {
    */
   public BufMgr(int numbufs) {
     
+	this(new BufMgrConfig(numbufs));
+  }
+
+  /**
+   * Constructs a buffer mamanger with the given settings.
+   * 
+   * @param config settings of the buffer manager
+   */
+  public BufMgr(BufMgrConfig config) {
+    
+	this(config, null, 0);
+	if (config.jmx)
+		registerMBean();
+	if (config.traceFile != null)
+		startTrace(config.traceFile);
+  }
+
+  /**
+   * Constructs a buffer manager, or one partition of it.
+   * 
+   * @param config settings of the buffer manager
+   * @param owner the buffer manager this is a partition of, or null
+   * @param partIndex index of the partition
+   */
+  private BufMgr(BufMgrConfig config, BufMgr owner, int partIndex) {
+    
+	this.owner = owner != null ? owner : this;
+	this.partIndex = partIndex;
+	if (owner == null && config.partitions > 1) {
+		partition(config);
+		return;
+	}
+	
+	int numbufs = config.numbufs;
+	share = numbufs;
 	frametab = new FrameDesc[numbufs];						// Creating Frame Table
-	bufpool = new Page[numbufs];							// Creating Buffer Pool
+	tracker = new FrameTracker(numbufs);
+	
+	disk = config.diskBackend != null ? config.diskBackend : newDiskBackend(config);
 	
-	// Initialize each frametab and bufferpool
+	// Creating Buffer Pool
+	if (config.offHeap)
+		bufpool = new ArenaFramePool(numbufs, disk);
+	else
+		bufpool = new HeapFramePool(numbufs, disk);
+	
+	// Initialize each frametab
 	for (int i=0; i<numbufs; i++) {
-		frametab[i] = new FrameDesc(i);
-		bufpool[i] = new Page();
+		frametab[i] = new FrameDesc(i, tracker);
 	}
   
-  	replacer = new Clock(this);								// Creating Clock object
-	pagemap = new HashMap<Integer, FrameDesc>(numbufs);		// Creating Page Map
+  	replacer = newReplacer(config.replacer);				// Creating the replacement policy
+	tracker.striping = config.stripedPins && replacer.sweepsStripedPins();
+	tracker.stripeAfter = config.stripeAfter;
+	pagemap = new PageTable(numbufs);						// Creating Page Map
+	readAheadPages = Math.min(config.readAhead, numbufs / 4);
+	ioThreads = Math.max(1, config.ioThreads);
+	pinWait = config.pinWait;
+	statsSample = Math.max(0, config.statsSample);
+	if (config.admission)
+		startAdmission(numbufs);
+	
+	if (config.bgWriterThreads > 0) {
+		int target = config.bgWriterTarget > 0 ? config.bgWriterTarget : Math.max(1, numbufs / 8);
+		bgwriter = new BgWriter(this, config.bgWriterThreads, target, config.bgWriterDelay);
+	}
   
   }
 
+  /**
+   * Splits the pool into the configured number of partitions, which share this
+   * one's disk backend and I/O threads. The background writer threads are
+   * split among them too, but each partition gets at least one.
+   */
+  private void partition(BufMgrConfig config) {
+	
+	int n = config.partitions;
+	disk = config.diskBackend != null ? config.diskBackend : newDiskBackend(config);
+	ioThreads = Math.max(1, config.ioThreads);
+	parts = new BufMgr[n];
+	for (int i = 0; i < n; i++) {
+		BufMgrConfig part = config.copy();
+		part.partitions = 1;
+		part.numbufs = config.numbufs / n + (i < config.numbufs % n ? 1 : 0);
+		part.diskBackend = disk;
+		if (config.bgWriterThreads > 0)
+			part.bgWriterThreads = Math.max(1, config.bgWriterThreads / n);
+		if (config.bgWriterTarget > 0)
+			part.bgWriterTarget = Math.max(1, config.bgWriterTarget / n);
+		parts[i] = new BufMgr(part, this, i);
+	}
+  }
+
+  /**
+   * Gets the partition the given page belongs to, or this buffer manager if it
+   * is not partitioned. Runs of consecutive pages stay together, so that scans
+   * and checkpoints still see them in one place.
+   */
+  BufMgr part(int pid) {
+	
+	if (parts == null)
+		return this;
+	int h = (pid / PART_EXTENT) * 0x9E3779B9;
+	return parts[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % parts.length];
+  }
+
+  /**
+   * Changes the number of frames in the buffer pool while it is in use. New
+   * frames start out empty. When the pool shrinks, the frames past the new
+   * size are drained a chunk at a time: each one is taken as soon as it is
+   * unpinned, and its page is written first if dirty, so this waits for pages
+   * pinned there to be unpinned. Resident pages elsewhere stay where they are.
+   * 
+   * @param numbufs the new number of buffers in the buffer pool
+   * @throws IllegalArgumentException if there would be no buffers (in some partition)
+   */
+  public synchronized void resize(int numbufs) {
+	
+	if (parts != null) {
+		if (numbufs < parts.length)
+			throw new IllegalArgumentException("invalid number of buffers: " + numbufs);
+		for (int i = 0; i < parts.length; i++)
+			parts[i].resize(numbufs / parts.length + (i < numbufs % parts.length ? 1 : 0));
+		return;
+	}
+	if (numbufs < 1)
+		throw new IllegalArgumentException("invalid number of buffers: " + numbufs);
+	
+	takeBack(); // the partitions start over with their share
+	share = numbufs;
+	int old = frametab.length;
+	if (numbufs > old)
+		grow(numbufs);
+	else if (numbufs < old) {
+		replacer.resize(numbufs); // no more victims past the new end
+		for (int end = old; end > numbufs; ) {
+			int start = Math.max(numbufs, end - RESIZE_CHUNK);
+			for (int i = end - 1; i >= start; i--)
+				retire(frametab[i]);
+			frametab = java.util.Arrays.copyOf(frametab, start);
+			bufpool.resize(start);
+			end = start;
+		}
+		tracker.resize(numbufs);
+	}
+	if (admission != null)
+		startAdmission(numbufs); // the ring may be gone, and the sketch too small
+	if (bgwriter != null)
+		bgwriter.resize(numbufs);
+  }
+
+  /**
+   * Lends a frame of another partition to the given one, and grows it by one
+   * frame. The lending partition takes out one of its victims, so the pool
+   * keeps its size. A partition that ran out of frames borrows from any other;
+   * one that lent out frames before only gets them back from partitions with
+   * more than their share.
+   * 
+   * @param full whether the borrower has no frame left to replace
+   * @return false if no other partition had a frame to spare
+   */
+  private synchronized boolean lendFrame(BufMgr borrower, boolean full) {
+	
+	for (int i = 1; i < parts.length; i++) {
+		BufMgr part = parts[(borrower.partIndex + i) % parts.length];
+		if ((full || part.getNumBuffers() > part.share) && part.giveFrame()) {
+			borrower.addFrame();
+			return true;
+		}
+	}
+	return false;
+  }
+
+  /**
+   * Takes one victim frame of this partition out of use, to lend it to another
+   * partition. Its page is written first if dirty, and leaves the page table;
+   * the frame stays claimed, so the replacer passes over it.
+   * 
+   * @return false if all frames are pinned
+   */
+  private synchronized boolean giveFrame() {
+	
+	int victim = replacer.pickVictim();
+	if (victim == -1)
+		return false;
+	
+	FrameDesc frameIndex = frametab[victim];
+	int pid = frameIndex.getPid();
+	if (pid != INVALID_PAGEID) {
+		try {
+			if (frameIndex.getDirty()) {
+				bufpool.write(pid, victim);
+				frameIndex.setDirty(false);
+			}
+		}
+		catch (RuntimeException exc) {
+			replacer.unusedVictim(frameIndex);
+			frameIndex.release(0); // the page stays where it is
+			throw exc;
+		}
+		pagemap.remove(pid, victim);
+		frameIndex.setPid(INVALID_PAGEID);
+	}
+	frameIndex.retire(); // pins waiting for the old page look it up again
+	lent.add(frameIndex);
+	numLent = lent.size();
+	return true;
+  }
+
+  /**
+   * Adds a frame to this partition: one it lent out before, if any, or else a
+   * new frame at the end.
+   */
+  private synchronized void addFrame() {
+	
+	if (lent.isEmpty()) {
+		grow(frametab.length + 1);
+		if (bgwriter != null)
+			bgwriter.resize(frametab.length);
+		return;
+	}
+	FrameDesc frameIndex = lent.remove(lent.size() - 1);
+	numLent = lent.size();
+	replacer.freePage(frameIndex);
+	frameIndex.retired = false;
+	frameIndex.release(0);
+  }
+
+  /**
+   * Puts the frames this partition lent out back into use.
+   */
+  private synchronized void takeBack() {
+	
+	while (!lent.isEmpty())
+		addFrame();
+  }
+
+  /**
+   * Adds empty frames at the end of the pool, up to the given size.
+   */
+  private void grow(int numbufs) {
+	
+	int old = frametab.length;
+	tracker.resize(numbufs);
+	bufpool.resize(numbufs);
+	FrameDesc[] tab = java.util.Arrays.copyOf(frametab, numbufs);
+	for (int i = old; i < numbufs; i++)
+		tab[i] = new FrameDesc(i, tracker);
+	frametab = tab;
+	replacer.resize(numbufs); // the new frames can be picked from now on
+  }
+
+  /**
+   * Sets up the admission policy for a pool of the given size: an empty
+   * frequency sketch, and a probation ring of a sixteenth of the pool.
+   */
+  private void startAdmission(int numbufs) {
+	
+	admission = new FrequencySketch(numbufs);
+	probation = new AccessStrategy(numbufs, Math.max(1, numbufs / 16) * PAGE_SIZE);
+  }
+
+  /**
+   * Takes a frame out of the pool for good, as soon as it is unpinned. Its
+   * page, if any, is written first if dirty, and leaves the page table.
+   */
+  private void retire(FrameDesc frameIndex) {
+	
+	while (!frameIndex.tryClaim())
+		LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1)); // wait for its pins to be dropped
+	
+	int pid = frameIndex.getPid();
+	if (pid != INVALID_PAGEID) {
+		if (frameIndex.getDirty()) {
+			try {
+				bufpool.write(frameIndex.getPid(), frameIndex.index);
+			}
+			catch (RuntimeException exc) {
+				frameIndex.release(0); // the frame stays, but the replacer left it; resize again
+				throw exc;
+			}
+			frameIndex.setDirty(false);
+		}
+		pagemap.remove(pid, frameIndex.index);
+		frameIndex.setPid(INVALID_PAGEID);
+	}
+	frameIndex.retire(); // stays claimed, so nobody can pin it again
+  }
+
+  /**
+   * Creates the replacement policy with the given name.
+   * 
+   * @throws IllegalArgumentException if there is no such policy
+   */
+  private Replacer newReplacer(String name) {
+	
+	if (name.equalsIgnoreCase(BufMgrConfig.CLOCK))
+		return new Clock(this);
+	if (name.equalsIgnoreCase(BufMgrConfig.COST_CLOCK))
+		return new CostClock(this);
+	if (name.equalsIgnoreCase(BufMgrConfig.LRUK))
+		return new LRUK(this);
+	if (name.equalsIgnoreCase(BufMgrConfig.TWOQ))
+		return new TwoQ(this);
+	if (name.equalsIgnoreCase(BufMgrConfig.ARC))
+		return new ARC(this);
+	throw new IllegalArgumentException("unknown replacement policy: " + name);
+  }
+
+  /**
+   * Opens the disk backend named in the given settings.
+   * 
+   * @throws IllegalArgumentException if there is no such backend, or it needs a
+   * file and none is given
+   */
+  private DiskBackend newDiskBackend(BufMgrConfig config) {
+	
+	if (config.disk.equalsIgnoreCase(BufMgrConfig.MINIBASE))
+		return new MinibaseDisk();
+	if (config.disk.equalsIgnoreCase(BufMgrConfig.MEMORY))
+		return new MemoryDisk(config.diskPages, config.diskReadLatency, config.diskWriteLatency,
+				config.diskBandwidth, config.diskQueueDepth);
+	boolean mapped = config.disk.equalsIgnoreCase(BufMgrConfig.MMAP);
+	if (!mapped && !config.disk.equalsIgnoreCase(BufMgrConfig.CHANNEL))
+		throw new IllegalArgumentException("unknown disk backend: " + config.disk);
+	if (config.diskPath == null)
+		throw new IllegalArgumentException("the " + config.disk + " disk backend needs a file");
+	return new FileChannelDisk(config.diskPath, mapped);
+  }
+
   /**
    * Allocates a set of new pages, and pins the first one in an appropriate
    * frame in the buffer pool.
@@ -67,22 +517,44 @@ public class BufMgr implements GlobalConst {
    * @param run_size number of pages to allocate
    * @return page id of the first new page
    * @throws IllegalArgumentException if PIN_MEMCPY and the page is pinned
-   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded)
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
    */
 
   public PageId newPage(Page firstpg, int run_size) {
     
-	PageId page_id = Minibase.DiskManager.allocate_page(run_size);  // Adds new page to buffer pool
+	return newPage(firstpg, run_size, null);
+  }
+
+  /**
+   * Allocates a set of new pages, and pins the first one in a frame chosen by
+   * the given access strategy.
+   * 
+   * @param firstpg holds the contents of the first page
+   * @param run_size number of pages to allocate
+   * @param strategy access strategy of the caller, or null for the default
+   * @return page id of the first new page
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
+   */
+  public PageId newPage(Page firstpg, int run_size, AccessStrategy strategy) {
+    
+	PageId page_id = disk.allocatePage(run_size);  // Adds new page to buffer pool
+	TraceRecorder t = trace;
+	if (t != null)
+		t.record(TraceRecorder.NEW, page_id.pid, run_size);
 	
 	try{
-		pinPage(page_id, firstpg, true); // Invoke pinPage method to pin a new page
+		pinPage(page_id, firstpg, true, strategy); // Invoke pinPage method to pin a new page
 	}
 	
 	catch(Exception e) {
 		//
 		for(int i=0; i<run_size; i++){
 			page_id.pid += i;
-			Minibase.DiskManager.deallocate_page(page_id); // Removes all illegal pages from buffer pool
+			disk.deallocatePage(page_id); // Removes all illegal pages from buffer pool
 		}
 		return null;
 	}
@@ -93,27 +565,50 @@ public class BufMgr implements GlobalConst {
 
   /**
    * Deallocates a single page from disk, freeing it from the pool if needed.
+   * Pages that are not in the pool are deallocated too; the first version of
+   * this method did nothing for them, so they stayed allocated.
    * 
    * @param pageno identifies the page to remove
    * @throws IllegalArgumentException if the page is pinned
    */
   public void freePage(PageId pageno) {
     
-	FrameDesc frameIndex = pagemap.get(pageno.pid); // Sets the frameIndex variable to the page Id which is to be freed
+	TraceRecorder t = trace;
+	if (t != null)
+		t.record(TraceRecorder.FREE, pageno.pid, 0);
+	if (parts != null) {
+		part(pageno.pid).freePage(pageno);
+		return;
+	}
+	
+	FrameDesc frameIndex;
 	
-	if(frameIndex != null){
+	while ((frameIndex = lookup(pageno.pid)) != null) {
 		
-		if(frameIndex.getPinCount() > 0) // check if the page is still pinned
-			throw new IllegalArgumentException("page is pinned, can not be removed.");
-		else{
-			frameIndex.pageno.pid = INVALID_PAGEID;
-			pagemap.remove(pageno.pid);
-			replacer.freePage(frameIndex); // update frame state to AVAILABLE
-		} // End of else part, for valid pages which have pincount of zero.
+		if (!frameIndex.tryClaim()) {
+			
+			if (frameIndex.getPinCount() > 0) // check if the page is still pinned
+				throw new IllegalArgumentException("page is pinned, can not be removed.");
+			
+			frameIndex.awaitRelease(); // the frame is being replaced, look again once it is done
+			continue;
+		}
 		
-		Minibase.DiskManager.deallocate_page(pageno);	// Removes all illegal pages from buffer pool
+		if (frameIndex.getPid() != pageno.pid) { // the frame was replaced before we claimed it
+			frameIndex.release(0);
+			continue;
+		}
 		
-	} 
+		pagemap.remove(pageno.pid, frameIndex.index);
+		frameIndex.setPid(INVALID_PAGEID);
+		frameIndex.setDirty(false);
+		replacer.freePage(frameIndex); // update frame state to AVAILABLE
+		frameIndex.release(0);
+		break;
+	}
+	
+	disk.deallocatePage(pageno);	// Removes the page from disk, whether or not it was buffered
+	
   } // end of void freePage method
 
   /**
@@ -121,131 +616,1226 @@ public class BufMgr implements GlobalConst {
    * simply increments the pin count. Otherwise, this selects another page in
    * the pool to replace, flushing it to disk if dirty.
    * 
+   * <p>Lookups of resident pages take no global lock; concurrent misses on the
+   * same page are coalesced, so that only one of them reads it from disk.
+   * 
    * @param pageno identifies the page to pin
    * @param page holds contents of the page, either an input or output param
    * @param skipRead PIN_MEMCPY (replace in pool); PIN_DISKIO (read the page in)
-   * @throws IllegalArgumentException if PIN_MEMCPY and the page is pinned
-   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded)
+   * @throws IllegalArgumentException if PIN_MEMCPY and the page is pinned, or
+   * the page number is invalid
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
    */
   public void pinPage(PageId pageno, Page page, boolean skipRead) {
     
-	FrameDesc frameIndex = pagemap.get(pageno.pid); //Put the page Id to be pinned in frameIndex variable
-	int start = 0; 
-	
-	/** for pages which are already in the buffer pool */
-	if (frameIndex != null){
-		 if (skipRead)
-			throw new IllegalArgumentException("invalid argument");
-		
-		 else{
-			frameIndex.setPinCount(frameIndex.getPinCount()+1); // Increase pin count of page by 1
-			page.setPage(bufpool[frameIndex.index]);
-			replacer.pinPage(frameIndex); // Update frame state to PINNED
-			return;
-		 } // The page is pinned
+	pinPage(pageno, page, skipRead, null);
+  }
+
+  /**
+   * Pins a disk page into the buffer pool, like {@link #pinPage(PageId, Page,
+   * boolean)}. On a miss, the access strategy recycles a frame from its own
+   * ring if it can, instead of asking the replacer for a victim.
+   * 
+   * @param pageno identifies the page to pin
+   * @param page holds contents of the page, either an input or output param
+   * @param skipRead PIN_MEMCPY (replace in pool); PIN_DISKIO (read the page in)
+   * @param strategy access strategy of the caller, or null for the default
+   * @throws IllegalArgumentException if PIN_MEMCPY and the page is pinned, or
+   * the page number is invalid
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
+   */
+  public void pinPage(PageId pageno, Page page, boolean skipRead, AccessStrategy strategy) {
+    
+	TraceRecorder t = trace;
+	if (t != null)
+		t.record(TraceRecorder.PIN, pageno.pid, 0);
+	if (parts != null) {
+		part(pageno.pid).pinPage(pageno, page, skipRead, strategy);
+		return;
 	}
 	
-	/** for pages which are not in the buffer pool. Find the victim to remove it from buffer.
-	* get a new page and pin that new page
-	*/
-	else{
-		start = replacer.pickVictim(); // Gets the id of victim page
-		
-		if (start == -1) // pickVictim() doesn't sent a valid frame, all buffers are pinned
-			throw new IllegalStateException("buffer is full, all pages are pinned");
+	if (sampled()) {
+		long start = System.nanoTime();
+		pin(pageno, page, skipRead, strategy);
+		pinLatency.record(System.nanoTime() - start);
+	}
+	else
+		pin(pageno, page, skipRead, strategy);
+  }
+
+  /**
+   * Pins a disk page into this buffer manager's pool; see pinPage.
+   */
+  private void pin(PageId pageno, Page page, boolean skipRead, AccessStrategy strategy) {
+	
+	FrequencySketch sketch = admission;
+	if (sketch != null)
+		sketch.increment(pageno.pid);
+	
+	for (;;) {
 		
-		frameIndex = frametab[start];
+		FrameDesc frameIndex = lookup(pageno.pid); //Put the page Id to be pinned in frameIndex variable
 		
-		if (frameIndex.pageno.pid != -1) {
-			
-			pagemap.remove(frameIndex.pageno.pid); // Removing the page reference from hashmap
-			
-			// Checking if the page to be removed is dirty, if it is, then write it to disk.
-			 if (frameIndex.getDirty())
-			 Minibase.DiskManager.write_page(frameIndex.pageno, bufpool[start]);
+		/** for pages which are already in the buffer pool */
+		if (frameIndex != null) {
+			if (pinResident(frameIndex, pageno.pid)) {
+				
+				// a page that is buffered but not pinned (e.g. read ahead) can be replaced
+				if (skipRead) {
+					if (frameIndex.getPinCount() > 1) {
+						unpinFrame(frameIndex);
+						throw new IllegalArgumentException("invalid argument");
+					}
+					bufpool.attach(frameIndex).copyPage(page);
+				}
+				pinnedHit(frameIndex, page, strategy);
+				return;
+			}
 		}
 		
-		if (skipRead)
-			bufpool[start].copyPage(page);
-		
-		else
-			Minibase.DiskManager.read_page(pageno, bufpool[start]); // Reading page from the disk into bufferpool
-		
-		/** initialize the new page */
+		/** for pages which are not in the buffer pool. Find the victim to remove it from buffer.
+		* get a new page and pin that new page
+		*/
+		else {
+			long start = System.nanoTime();
+			if (pinMissing(pageno, page, skipRead, strategy) != null) {
+				misses.increment();
+				missLatency.record(System.nanoTime() - start);
+				
+				// the two pages before this one are buffered too, so this looks like a scan
+				if (readAheadPages > 0 && !skipRead && isResident(pageno.pid - 1) && isResident(pageno.pid - 2))
+					readAhead(pageno.pid + 1, strategy);
+				return;
+			}
+		}
 		
-	    frameIndex.pincnt = 1; // Setting pincount to 1
-		page.setPage(bufpool[start]);
-		pagemap.put(pageno.pid, frameIndex); // Including the page in hashmap
-		frameIndex.pageno.pid = pageno.pid;
-		replacer.pinPage(frameIndex); // update frame state to PINNED 
+		// the frame changed hands while we were looking at it, so try again
 	}
   }
 
   /**
-   * Unpins a disk page from the buffer pool, decreasing its pin count.
+   * Returns the page of a frame pinned by a hit, and tells the replacer about
+   * the reference.
+   */
+  private void pinnedHit(FrameDesc frameIndex, Page page, AccessStrategy strategy) {
+	
+	page.setPage(bufpool.attach(frameIndex));
+	replacer.pinPage(frameIndex); // Update frame state to PINNED
+	if (frameIndex.readahead) { // the scan has caught up with the pages read ahead
+		frameIndex.readahead = false;
+		readAhead(frameIndex.getPid() + 1, strategy);
+	}
+	hits.increment();
+  }
+
+  /**
+   * Gets the frame currently mapped to the given page, or null if there is none.
+   */
+  private FrameDesc lookup(int pid) {
+	
+	int frame = pagemap.get(pid);
+	FrameDesc[] tab = frametab;
+	return frame == PageTable.NOT_FOUND || frame >= tab.length ? null : tab[frame]; // it may have just been retired
+  }
+
+  /**
+   * Tells whether the given page is buffered, in whichever partition.
+   */
+  private boolean isResident(int pid) {
+	
+	BufMgr part = owner.part(pid);
+	return part.lookup(pid) != null;
+  }
+
+  /**
+   * Pins a page that was found in the page table, waiting for it to be read in
+   * if another thread is still loading it.
    * 
-   * @param pageno identifies the page to unpin
-   * @param dirty UNPIN_DIRTY if the page was modified, UNPIN_CLEAN otherrwise
-   * @throws IllegalArgumentException if the page is not present or not pinned
+   * @return true if the frame was pinned and still holds the page
    */
-  public void unpinPage(PageId pageno, boolean dirty) {
-    
-	FrameDesc frameIndex = pagemap.get(pageno.pid); //Put the page Id to be unpinned in frameIndex variable
+  private boolean pinResident(FrameDesc frameIndex, int pid) {
 	
-	if (frameIndex == null) // Checking for invalid pages
-		throw new IllegalArgumentException("Page is not present");
+	if (!frameIndex.tryPin()) {
+		frameIndex.awaitRelease(); // the frame is being replaced
+		return false;
+	}
 	
-	else {
-		if (frameIndex.getPinCount() > 0 ){
-			frameIndex.setPinCount(frameIndex.getPinCount()-1); // Decrease pin count of page by 1
-			frameIndex.dirty = dirty;
-			replacer.unpinPage(frameIndex); // Updating frame state to REFERENCED
-			return;
-		}
+	if (frameIndex.getPid() == pid && frameIndex.loading)
+		frameIndex.awaitLoad(); // another thread is reading the page in, share its read
+	
+	if (frameIndex.getPid() != pid) { // replaced before we pinned it, or the read failed
+		unpinFrame(frameIndex);
+		return false;
 	}
+	return true;
   }
 
   /**
-   * Immediately writes a page in the buffer pool to disk, if dirty.
+   * Brings a page that was not found in the page table into a victim frame,
+   * and pins it. Without a page to return it in, the page is only read ahead:
+   * the replacer is told about the new page, but not about a reference to it.
+   * 
+   * @return the frame, or null if another thread brought the page in first
    */
-  public void flushPage(PageId pageno) {
-    
-	for (int i=0; i<frametab.length; i++){
-		if ((pageno == null || frametab[i].pageno.pid == pageno.pid) && frametab[i].dirty){
-			Minibase.DiskManager.write_page(frametab[i].pageno, bufpool[i]);
+  private FrameDesc pinMissing(PageId pageno, Page page, boolean skipRead, AccessStrategy strategy) {
+	
+	FrameDesc frameIndex = claimMissing(pageno, page, skipRead, strategy);
+	if (frameIndex == null)
+		return null;
+	
+	if (!skipRead) {
+		try {
+			bufpool.read(pageno, frameIndex.index); // Reading page from the disk into bufferpool
 		}
+		catch (RuntimeException exc) {
+			abortLoad(frameIndex, pageno.pid);
+			throw exc;
+		}
+		frameIndex.finishLoad();
+	}
+	
+	if (page != null) {
+		page.setPage(bufpool.attach(frameIndex));
+		replacer.pinPage(frameIndex); // update frame state to PINNED
 	}
+	return frameIndex;
   }
 
   /**
-   * Immediately writes all dirty pages in the buffer pool to disk.
+   * Maps a page that was not found in the page table to a victim frame, and
+   * pins the frame once. Unless the page was copied in, the frame is left
+   * loading, and the caller has to read the page in.
+   * 
+   * @return the frame, or null if another thread brought the page in first
    */
-  public void flushAllPages() {
-	  
-    for (int i=0; i<frametab.length; i++)
-		flushPage(frametab[i].pageno); // Iteratively invokes flushPage method to check and write back to disk
+  private FrameDesc claimMissing(PageId pageno, Page page, boolean skipRead, AccessStrategy strategy) {
+	
+	if (pageno.pid < 0) // before a victim is claimed, since the page table would refuse it
+		throw new IllegalArgumentException("invalid page number: " + pageno.pid);
+	
+	// a partition that lent out frames takes them back once the borrowers can spare them
+	if (owner != this && getNumBuffers() < share)
+		owner.lendFrame(this, false);
+	
+	int start = -1;
+	if (strategy != null)
+		start = strategy.claimCurrent(partIndex, frametab); // recycle the caller's own frame
+	if (start == -1) {
+		victimSearches.increment();
+		start = replacer.pickVictim(); // Gets the id of victim page, claimed for us
+	}
+	
+	// a full partition borrows a frame from another one; it may be taken before we get to it
+	while (start == -1 && owner != this && owner.lendFrame(this, true)) {
+		victimSearches.increment();
+		start = replacer.pickVictim();
+	}
+	
+	// callers pinning for themselves wait their turn; reads ahead and asynchronous pins do not block
+	if (start == -1 && page != null && pinWait > 0)
+		start = awaitVictim();
+	
+	if (start == -1) // pickVictim() doesn't sent a valid frame, all buffers are pinned
+		throw new IllegalStateException("buffer is full, all pages are pinned");
+	
+	// pages pinned for the caller must be more popular than the victim's page to replace it
+	AccessStrategy ring = strategy;
+	int ringPart = partIndex;
+	FrequencySketch sketch = admission;
+	if (sketch != null && strategy == null && page != null) {
+		int victimPid = frametab[start].getPid();
+		if (victimPid != INVALID_PAGEID && !sketch.admit(pageno.pid, victimPid)) {
+			admissionRejects.increment();
+			ring = probation;
+			ringPart = 0;
+			int recycled = ring.claimCurrent(0, frametab);
+			if (recycled != -1) { // otherwise the ring is still filling up, and takes the victim
+				replacer.unusedVictim(frametab[start]);
+				frametab[start].release(0); // the victim stays
+				start = recycled;
+			}
+		}
+	}
+	
+	return install(start, pageno, page, skipRead, ring, ringPart);
   }
 
   /**
-   * Gets the total number of buffer frames.
+   * Maps a page that was not found in the page table to the given claimed
+   * frame, writing out the frame's old page first if it is dirty, and pins
+   * the frame once. Unless the page was copied in, the frame is left loading,
+   * and the caller has to read the page in.
+   * 
+   * @param ring access strategy whose ring the frame joins, or null
+   * @return the frame, or null if another thread brought the page in first
    */
-  public int getNumBuffers() {
-    
-	return bufpool.length;
+  private FrameDesc install(int start, PageId pageno, Page page, boolean skipRead, AccessStrategy ring, int ringPart) {
+	
+	FrameDesc frameIndex = frametab[start];
+	
+	try {
+		if (frameIndex.getPid() != INVALID_PAGEID) {
+			
+			evictions.increment();
+			
+			// Checking if the page to be removed is dirty, if it is, then write it to disk.
+			// It stays in the page table until then, so nobody reads a stale copy from disk.
+			if (frameIndex.getDirty()) {
+				syncWrites.increment();
+				if (bgwriter != null)
+					bgwriter.wakeup(); // it is falling behind
+				bufpool.write(frameIndex.getPid(), start);
+				frameIndex.setDirty(false);
+			}
+			pagemap.remove(frameIndex.getPid(), start); // Removing the page reference from the page table
+			frameIndex.setPid(INVALID_PAGEID);
+		}
+	}
+	catch (RuntimeException exc) {
+		replacer.unusedVictim(frameIndex);
+		frameIndex.release(0); // the old page stays where it is
+		throw exc;
+	}
+	
+	if (skipRead)
+		bufpool.copyIn(start, page);
+	
+	/** initialize the new page, and publish it; misses on the same page now wait for our read */
+	
+	frameIndex.setPid(pageno.pid);
+	frameIndex.loading = !skipRead;
+	frameIndex.readahead = false;
+	if (pagemap.putIfAbsent(pageno.pid, start) != PageTable.NOT_FOUND) {
+		
+		// someone else brought the page in first; give back the empty frame
+		frameIndex.setPid(INVALID_PAGEID);
+		frameIndex.loading = false;
+		replacer.freePage(frameIndex);
+		frameIndex.release(0);
+		return null;
+	}
+	replacer.newPage(frameIndex);
+	frameIndex.release(1); // Setting pincount to 1
+	if (ring != null)
+		ring.loaded(ringPart, start, pageno.pid);
+	return frameIndex;
   }
 
   /**
-   * Gets the total number of unpinned buffer frames.
+   * Gives up a frame whose page could not be read in, and unpins it.
    */
-  public int getNumUnpinned() {
-	  
-    int unpinCount=0;
+  private void abortLoad(FrameDesc frameIndex, int pid) {
 	
-	for (int i=0; i<bufpool.length;i++){
-		if (frametab[i].getPinCount() == 0)
-			unpinCount += 1;
+	pagemap.remove(pid, frameIndex.index);
+	frameIndex.setPid(INVALID_PAGEID);
+	frameIndex.finishLoad(); // waiters see the page is gone and retry themselves
+	replacer.freePage(frameIndex);
+	unpinFrame(frameIndex);
+  }
+
+  /**
+   * Pins a disk page into the buffer pool without waiting for the disk. The
+   * returned future completes with the page once it is pinned and read in;
+   * unpin it with {@link #unpinPage} as usual. Concurrent misses on the same
+   * page share one read, and waits for frames in flux are chained rather than
+   * blocked on; a miss only holds up the caller when its victim is dirty and
+   * has to be written first, which a background writer makes rare.
+   * 
+   * @param pageno identifies the page to pin
+   * @return a future of the pinned page, which fails with IllegalStateException
+   * if all pages are pinned, or all pages of the page's partition
+   */
+  public CompletableFuture<Page> pinPageAsync(PageId pageno) {
+	
+	TraceRecorder t = trace;
+	if (t != null)
+		t.record(TraceRecorder.PIN, pageno.pid, 0);
+	if (parts != null)
+		return part(pageno.pid).pinPageAsync(pageno);
+	
+	FrequencySketch sketch = admission;
+	if (sketch != null)
+		sketch.increment(pageno.pid);
+	CompletableFuture<Page> result = new CompletableFuture<Page>();
+	pinAsync(pageno.pid, result);
+	return result;
+  }
+
+  /**
+   * Takes the next step of an asynchronous pin: completes it if the page is
+   * ready, or arranges to be called again once it might be.
+   */
+  private void pinAsync(final int pid, final CompletableFuture<Page> result) {
+	
+	try {
+		for (;;) {
+			
+			FrameDesc frameIndex = lookup(pid);
+			if (frameIndex != null) {
+				if (!frameIndex.tryPin()) { // the frame is being replaced
+					retryAsync(frameIndex.whenReleased(), pid, result);
+					return;
+				}
+				if (frameIndex.getPid() == pid && frameIndex.loading) { // another read is on its way
+					unpinFrame(frameIndex);
+					retryAsync(frameIndex.whenLoaded(), pid, result);
+					return;
+				}
+				if (frameIndex.getPid() != pid) {
+					unpinFrame(frameIndex);
+					continue;
+				}
+				if (frameIndex.readahead) {
+					frameIndex.readahead = false;
+					readAhead(pid + 1, null);
+				}
+				hits.increment();
+				result.complete(pinned(frameIndex));
+				return;
+			}
+			
+			final long start = System.nanoTime();
+			final FrameDesc claimed = claimMissing(new PageId(pid), null, PIN_DISKIO, null);
+			if (claimed == null)
+				continue; // someone else brought the page in first
+			if (readAheadPages > 0 && isResident(pid - 1) && isResident(pid - 2))
+				readAhead(pid + 1, null);
+			
+			CompletableFuture<Void> read;
+			try {
+				read = bufpool.readAsync(new PageId(pid), claimed.index, ioExecutor());
+			}
+			catch (RuntimeException exc) {
+				abortLoad(claimed, pid);
+				throw exc;
+			}
+			read.whenComplete(new BiConsumer<Void, Throwable>() {
+				public void accept(Void unused, Throwable exc) {
+					if (exc != null) {
+						abortLoad(claimed, pid);
+						result.completeExceptionally(exc instanceof CompletionException && exc.getCause() != null
+								? exc.getCause() : exc);
+						return;
+					}
+					claimed.finishLoad();
+					misses.increment();
+					missLatency.record(System.nanoTime() - start);
+					result.complete(pinned(claimed));
+				}
+			});
+			return;
+		}
+	}
+	catch (RuntimeException exc) {
+		result.completeExceptionally(exc);
+	}
+  }
+
+  /**
+   * Continues an asynchronous pin once the given wait is over.
+   */
+  private void retryAsync(CompletableFuture<Void> wait, final int pid, final CompletableFuture<Page> result) {
+	
+	wait.thenRun(new Runnable() {
+		public void run() {
+			pinAsync(pid, result);
+		}
+	});
+  }
+
+  /**
+   * Gets a new page for a frame pinned by an asynchronous pin, and tells the
+   * replacer about the reference.
+   */
+  private Page pinned(FrameDesc frameIndex) {
+	
+	Page page = new Page();
+	page.setPage(bufpool.attach(frameIndex));
+	replacer.pinPage(frameIndex); // update frame state to PINNED
+	return page;
+  }
+
+  /**
+   * Pins several disk pages into the buffer pool at once, as if by pinPage
+   * with PIN_DISKIO for each, e.g. for the inner pages of an index nested
+   * loops join or a bitmap heap scan. The buffered pages are pinned in one
+   * pass; victims for the others are reserved together, in one sweep of the
+   * replacer, and the missing pages are read in page order, each run of
+   * consecutive pages with one request. Either all pages are pinned, or none.
+   * 
+   * <p>Missed pages are not held to the admission policy.
+   * 
+   * @param pagenos identify the pages to pin; a page listed twice is pinned twice
+   * @param pages receive the contents of the pages, in the same order
+   * @throws IllegalArgumentException if a page number is invalid
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
+   */
+  public void pinPages(PageId[] pagenos, Page[] pages) {
+	
+	TraceRecorder t = trace;
+	if (t != null) {
+		for (PageId pageno : pagenos)
+			t.record(TraceRecorder.PIN, pageno.pid, 0);
+	}
+	for (PageId pageno : pagenos) {
+		if (pageno.pid < 0) // before anything is pinned
+			throw new IllegalArgumentException("invalid page number: " + pageno.pid);
+	}
+	if (parts == null) {
+		pinBatch(pagenos, pages);
+		return;
+	}
+	
+	// a batch per partition; if one fails, the ones before it are unpinned
+	int done = 0;
+	PageId[][] batches = new PageId[parts.length][];
+	try {
+		for (; done < parts.length; done++) {
+			int[] index = batchOf(parts[done], pagenos);
+			batches[done] = new PageId[index.length];
+			Page[] batchPages = new Page[index.length];
+			for (int j = 0; j < index.length; j++) {
+				batches[done][j] = pagenos[index[j]];
+				batchPages[j] = pages[index[j]];
+			}
+			parts[done].pinBatch(batches[done], batchPages);
+		}
+	}
+	catch (RuntimeException exc) {
+		for (int p = 0; p < done; p++) {
+			for (PageId pageno : batches[p])
+				parts[p].unpin(pageno, UNPIN_CLEAN);
+		}
+		throw exc;
+	}
+  }
+
+  /**
+   * Gets the indexes of the given pages that belong to the given partition.
+   */
+  private int[] batchOf(BufMgr part, PageId[] pagenos) {
+	
+	int[] index = new int[pagenos.length];
+	int n = 0;
+	for (int i = 0; i < pagenos.length; i++) {
+		if (part(pagenos[i].pid) == part)
+			index[n++] = i;
+	}
+	return Arrays.copyOf(index, n);
+  }
+
+  /**
+   * Pins several disk pages into this buffer manager's pool; see pinPages.
+   */
+  private void pinBatch(PageId[] pagenos, Page[] pages) {
+	
+	int n = pagenos.length;
+	FrameDesc[] frames = new FrameDesc[n]; // the frames pinned so far, for the pages
+	int[] victims = new int[0];
+	int reserved = 0, used = 0;
+	long start = System.nanoTime();
+	
+	try {
+		
+		/** the pages that are buffered are pinned in one pass */
+		
+		long[] missing = new long[n]; // page number and index of each miss, to sort them by page
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			FrameDesc frameIndex = lookup(pagenos[i].pid);
+			if (frameIndex != null && pinResident(frameIndex, pagenos[i].pid)) {
+				pinnedHit(frameIndex, pages[i], null);
+				frames[i] = frameIndex;
+			}
+			else
+				missing[m++] = (long) pagenos[i].pid << 32 | i;
+		}
+		if (m == 0)
+			return;
+		Arrays.sort(missing, 0, m);
+		
+		/** one victim for each missing page, reserved in one go */
+		
+		int distinct = 0;
+		for (int j = 0; j < m; j++) {
+			if (j == 0 || (missing[j] >>> 32) != (missing[j - 1] >>> 32))
+				distinct++;
+		}
+		victims = new int[distinct];
+		victimSearches.increment();
+		reserved = replacer.pickVictims(victims, distinct);
+		
+		/** map the pages to the victims in page order, and read each run of consecutive pages at once */
+		
+		int[] run = new int[distinct]; // indexes of the pages of the current run
+		int runLength = 0;
+		int[] later = new int[m]; // indexes of the pages to pin one at a time
+		int deferred = 0;
+		for (int j = 0; j < m; j++) {
+			int i = (int) missing[j];
+			if ((j > 0 && (missing[j] >>> 32) == (missing[j - 1] >>> 32)) || used == reserved) {
+				later[deferred++] = i; // listed twice, or out of victims
+				continue;
+			}
+			FrameDesc frameIndex = install(victims[used++], pagenos[i], pages[i], PIN_DISKIO, null, partIndex);
+			if (frameIndex == null) {
+				later[deferred++] = i; // brought in by someone else meanwhile
+				continue;
+			}
+			frames[i] = frameIndex;
+			if (runLength > 0 && pagenos[i].pid != pagenos[run[runLength - 1]].pid + 1) {
+				readBatch(pagenos, pages, frames, run, runLength, start);
+				runLength = 0;
+			}
+			run[runLength++] = i;
+		}
+		if (runLength > 0)
+			readBatch(pagenos, pages, frames, run, runLength, start);
+		
+		for (int k = 0; k < deferred; k++) {
+			int i = later[k];
+			pin(pagenos[i], pages[i], PIN_DISKIO, null);
+			frames[i] = lookup(pagenos[i].pid); // it stays there while we have it pinned
+		}
+	}
+	catch (RuntimeException exc) {
+		for (int v = used; v < reserved; v++) {
+			replacer.unusedVictim(frametab[victims[v]]); // the replacer may have taken it off its lists
+			frametab[victims[v]].release(0); // the victim keeps its page
+		}
+		for (int i = 0; i < n; i++) {
+			if (frames[i] == null)
+				continue;
+			if (frames[i].loading)
+				abortLoad(frames[i], pagenos[i].pid);
+			else
+				unpinFrame(frames[i]);
+		}
+		throw exc;
+	}
+  }
+
+  /**
+   * Reads a run of consecutive pages that were mapped to frames by pinBatch
+   * with one request, and returns them in the given pages.
+   * 
+   * @param run indexes of the pages of the run
+   */
+  private void readBatch(PageId[] pagenos, Page[] pages, FrameDesc[] frames, int[] run, int count, long start) {
+	
+	int[] runFrames = new int[count];
+	for (int k = 0; k < count; k++)
+		runFrames[k] = frames[run[k]].index;
+	bufpool.readRun(pagenos[run[0]].pid, runFrames, count); // the caller gives up the frames if it fails
+	
+	long time = System.nanoTime() - start;
+	for (int k = 0; k < count; k++) {
+		FrameDesc frameIndex = frames[run[k]];
+		frameIndex.finishLoad();
+		pages[run[k]].setPage(bufpool.attach(frameIndex));
+		replacer.pinPage(frameIndex); // update frame state to PINNED
+		misses.increment();
+		missLatency.record(time);
+	}
+  }
+
+  /**
+   * Unpins several disk pages at once, as if by unpinPage for each.
+   * 
+   * @param pagenos identify the pages to unpin; a page listed twice is unpinned twice
+   * @param dirty UNPIN_DIRTY if the pages were modified, UNPIN_CLEAN otherwise
+   * @throws IllegalArgumentException if a page is not present; then none are unpinned
+   */
+  public void unpinPages(PageId[] pagenos, boolean dirty) {
+	
+	TraceRecorder t = trace;
+	if (t != null) {
+		for (PageId pageno : pagenos)
+			t.record(dirty ? TraceRecorder.UNPIN_DIRTY : TraceRecorder.UNPIN, pageno.pid, 0);
+	}
+	
+	// all pages are looked up first, so that a bad one leaves the others pinned
+	FrameDesc[] frames = new FrameDesc[pagenos.length];
+	for (int i = 0; i < pagenos.length; i++) {
+		frames[i] = part(pagenos[i].pid).lookup(pagenos[i].pid);
+		if (frames[i] == null)
+			throw new IllegalArgumentException("Page is not present");
+	}
+	for (int i = 0; i < pagenos.length; i++) {
+		if (dirty)
+			frames[i].setDirty(true);
+		part(pagenos[i].pid).unpinFrame(frames[i]);
+	}
+  }
+
+  /**
+   * Copies a page into the given page, optimistically: if the page is buffered
+   * and nobody has it pinned, it is copied straight out of its frame, and the
+   * copy is kept if the frame's version did not change meanwhile. That path
+   * writes nothing other threads read, not even a pin count, so threads
+   * reading the same hot pages (e.g. the upper levels of an index) do not
+   * contend at all. Pages that are pinned (and so may be written to), being
+   * replaced or not buffered, and copies that keep getting torn, are pinned,
+   * copied and unpinned instead; such a copy is only as safe from concurrent
+   * writers as a page pinned with pinPage.
+   * 
+   * <p>Optimistic reads are not counted as hits, and only the Clock policy
+   * counts them as references.
+   * 
+   * @param pageno identifies the page to read
+   * @param page receives the contents of the page; it must have its own data,
+   * rather than be attached to a frame by pinPage
+   * @throws IllegalStateException if all pages are pinned (i.e. pool exceeded);
+   * in a partitioned pool, if all pages of the page's partition are, which
+   * can happen while other partitions still have unpinned frames
+   */
+  public void readPage(PageId pageno, Page page) {
+	
+	TraceRecorder t = trace;
+	if (t != null) {
+		t.record(TraceRecorder.PIN, pageno.pid, 0);
+		t.record(TraceRecorder.UNPIN, pageno.pid, 0);
+	}
+	if (parts != null) {
+		part(pageno.pid).readPage(pageno, page);
+		return;
+	}
+	
+	for (int tries = 0; tries < READ_TRIES; tries++) {
+		
+		FrameDesc frameIndex = lookup(pageno.pid);
+		if (frameIndex == null)
+			break; // it has to be read in
+		
+		// the version comes first: a pinner moves it on after taking its pin
+		int version = frameIndex.getVersion();
+		if (tracker.getOwnPinCount(frameIndex.index) != 0)
+			break; // someone may be writing to it, or it is being replaced; hot frames always look pinned
+		if (frameIndex.getPid() != pageno.pid || !bufpool.copyOut(frameIndex.index, page))
+			continue; // it was replaced before we looked
+		
+		VarHandle.acquireFence(); // the copy is complete before we check the version
+		if (frameIndex.getVersion() == version) {
+			replacer.readPage(frameIndex);
+			return;
+		}
+	}
+	
+	Page frame = new Page();
+	pin(pageno, frame, PIN_DISKIO, null);
+	page.copyPage(frame);
+	unpin(pageno, UNPIN_CLEAN);
+  }
+
+  /**
+   * Starts reading the given pages into the buffer pool in the background,
+   * so that pinning them later does not have to wait for the disk. Pages that
+   * are already buffered are skipped, and so are pages that do not fit into
+   * the pool without replacing pinned ones.
+   * 
+   * @param first identifies the first page to read
+   * @param count number of consecutive pages to read
+   */
+  public void prefetch(PageId first, int count) {
+	
+	prefetch(first, count, null);
+  }
+
+  /**
+   * Starts reading the given pages into the buffer pool in the background,
+   * like {@link #prefetch(PageId, int)}, into frames of the given strategy's ring.
+   * 
+   * @param first identifies the first page to read
+   * @param count number of consecutive pages to read
+   * @param strategy access strategy of the caller, or null for the default
+   */
+  public void prefetch(PageId first, int count, AccessStrategy strategy) {
+	
+	// a few pages per task keeps them in order, while runs proceed in parallel
+	for (int pid = first.pid; pid < first.pid + count; pid += 8)
+		submitReads(pid, Math.min(8, first.pid + count - pid), -1, strategy);
+  }
+
+  /**
+   * Reads a window of pages ahead of a sequential scan. The page in the middle
+   * of the window is marked, and pinning it reads the next window.
+   */
+  private void readAhead(int pid, AccessStrategy strategy) {
+	
+	int window = readAheadPages;
+	if (strategy != null) // pages read ahead must not be recycled before the scan gets to them
+		window = Math.min(window, strategy.getRingSize() / 2);
+	if (window > 0)
+		submitReads(pid, window, pid + window / 2, strategy);
+  }
+
+  /**
+   * Has an I/O thread read the given pages into the pool, one after the other.
+   * 
+   * @param trigger the page to mark for reading the next window, or -1
+   */
+  private void submitReads(final int pid, final int count, final int trigger, final AccessStrategy strategy) {
+	
+	ioExecutor().execute(new Runnable() {
+		public void run() {
+			PageId pageno = new PageId();
+			for (pageno.pid = pid; pageno.pid < pid + count; pageno.pid++) {
+				BufMgr part = owner.part(pageno.pid);
+				if (part.lookup(pageno.pid) != null)
+					continue;
+				try {
+					FrameDesc frameIndex = part.pinMissing(pageno, null, false, strategy);
+					if (frameIndex != null) {
+						part.readAheads.increment();
+						frameIndex.readahead = pageno.pid == trigger;
+						part.unpinFrame(frameIndex);
+					}
+				}
+				catch (RuntimeException exc) {
+					return; // the pool is full of pinned pages, or we ran off the end of the file
+				}
+			}
+		}
+	});
+  }
+
+  /**
+   * Gets the executor for background I/O, starting it if needed.
+   */
+  private ExecutorService ioExecutor() {
+	
+	if (owner != this)
+		return owner.ioExecutor(); // shared by the partitions
+	ExecutorService executor = ioExecutor;
+	if (executor == null) {
+		synchronized (this) {
+			executor = ioExecutor;
+			if (executor == null) {
+				ioExecutor = executor = Executors.newFixedThreadPool(ioThreads, new ThreadFactory() {
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "bufmgr-io");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+	}
+	return executor;
+  }
+
+  /**
+   * Unpins a disk page from the buffer pool, decreasing its pin count.
+   * 
+   * @param pageno identifies the page to unpin
+   * @param dirty UNPIN_DIRTY if the page was modified, UNPIN_CLEAN otherrwise
+   * @throws IllegalArgumentException if the page is not present or not pinned
+   */
+  public void unpinPage(PageId pageno, boolean dirty) {
+    
+	TraceRecorder t = trace;
+	if (t != null)
+		t.record(dirty ? TraceRecorder.UNPIN_DIRTY : TraceRecorder.UNPIN, pageno.pid, 0);
+	if (parts != null) {
+		part(pageno.pid).unpinPage(pageno, dirty);
+		return;
+	}
+	
+	if (sampled()) {
+		long start = System.nanoTime();
+		unpin(pageno, dirty);
+		unpinLatency.record(System.nanoTime() - start);
+	}
+	else
+		unpin(pageno, dirty);
+  }
+
+  /**
+   * Unpins a disk page from this buffer manager's pool; see unpinPage.
+   */
+  private void unpin(PageId pageno, boolean dirty) {
+	
+	FrameDesc frameIndex = lookup(pageno.pid); //Put the page Id to be unpinned in frameIndex variable
+	
+	if (frameIndex == null) // Checking for invalid pages
+		throw new IllegalArgumentException("Page is not present");
+	
+	// the dirty bit has to be set before the pin is dropped, or the frame could be
+	// replaced without writing our changes; other pinners' changes must not be lost
+	if (dirty)
+		frameIndex.setDirty(true);
+	unpinFrame(frameIndex); // Decrease pin count of page by 1
+  }
+
+  /**
+   * Tells whether to time the current pin or unpin.
+   */
+  private boolean sampled() {
+	
+	return statsSample > 0 && ThreadLocalRandom.current().nextInt(statsSample) == 0;
+  }
+
+  /**
+   * Drops one pin on a frame, and tells the replacer when the last one is gone.
+   * An unpin of a frame with striped pins can not tell whether it was the last;
+   * the replacer finds out as it sweeps, and the view of the page stays until
+   * the frame is replaced, but a pin waiting for a frame is woken up to look.
+   */
+  void unpinFrame(FrameDesc frameIndex) {
+	
+	int cnt = frameIndex.unpin();
+	if (cnt == 0) {
+		replacer.unpinPage(frameIndex); // Updating frame state to REFERENCED
+		bufpool.detach(frameIndex);
+	}
+	if ((cnt == 0 || cnt == FrameDesc.UNCOUNTED) && frameWaiters > 0)
+		signalFrameFreed();
+  }
+
+  /**
+   * Waits for up to pinWait milliseconds for the replacer to find a victim,
+   * queued behind the pins that started waiting earlier.
+   * 
+   * @return the victim frame, claimed for us, or -1 if the wait timed out
+   */
+  private int awaitVictim() {
+	
+	long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pinWait);
+	frameLock.lock();
+	frameWaiters++;
+	try {
+		for (;;) {
+			long left = deadline - System.nanoTime();
+			if (left <= 0)
+				return -1;
+			// also look again now and then, in case a frame was freed without a signal
+			frameFreed.awaitNanos(Math.min(left, TimeUnit.MILLISECONDS.toNanos(10)));
+			victimSearches.increment();
+			int start = replacer.pickVictim();
+			if (start != -1)
+				return start;
+		}
+	}
+	catch (InterruptedException exc) {
+		Thread.currentThread().interrupt();
+		return -1;
+	}
+	finally {
+		frameWaiters--;
+		frameLock.unlock();
+	}
+  }
+
+  /**
+   * Wakes up the pin that has waited longest for a frame.
+   */
+  private void signalFrameFreed() {
+	
+	frameLock.lock();
+	try {
+		frameFreed.signal();
+	}
+	finally {
+		frameLock.unlock();
+	}
+  }
+
+  /**
+   * Immediately writes a page in the buffer pool to disk, if dirty.
+   */
+  public void flushPage(PageId pageno) {
+    
+	if (pageno == null) {
+		flushAllPages();
+		return;
+	}
+	if (parts != null) {
+		part(pageno.pid).flushPage(pageno);
+		return;
+	}
+	
+	FrameDesc frameIndex = lookup(pageno.pid);
+	if (frameIndex != null)
+		flushFrame(frameIndex, pageno.pid, true);
+  }
+
+  /**
+   * Immediately writes all dirty pages in the buffer pool to disk.
+   */
+  public void flushAllPages() {
+	  
+	checkpoint();
+  }
+
+  /**
+   * Immediately writes all dirty pages in the buffer pool to disk. The dirty
+   * frames are taken from the dirty set and written in page order, with runs of
+   * consecutive pages written together, spread over the I/O threads.
+   */
+  public void checkpoint() {
+	
+	if (parts != null) {
+		for (BufMgr part : parts)
+			part.checkpoint();
+		return;
+	}
+	new Checkpoint(this).run(ioThreads > 1 ? ioExecutor() : null, ioThreads);
+  }
+
+  /**
+   * Writes a frame to disk if it still holds the given page and is dirty. The
+   * frame is held meanwhile, so that it cannot be replaced under us; a hold is
+   * not a pin, so callers never see the write in the pin counts.
+   * 
+   * @param wait true to wait for the frame if it is claimed; otherwise it is skipped
+   * @return true if the frame was written
+   */
+  boolean flushFrame(FrameDesc frameIndex, int pid, boolean wait) {
+	
+	if (pid == INVALID_PAGEID || !frameIndex.getDirty())
+		return false; // nothing to write
+	if (wait ? !holdPage(frameIndex, pid) : !frameIndex.tryHold())
+		return false;
+	
+	try {
+		if (frameIndex.getPid() == pid && !frameIndex.loading && frameIndex.getDirty()) {
+			frameIndex.setDirty(false); // cleared first, so concurrent changes dirty it again
+			try {
+				bufpool.write(frameIndex.getPid(), frameIndex.index);
+			}
+			catch (RuntimeException exc) {
+				frameIndex.setDirty(true);
+				throw exc;
+			}
+			return true;
+		}
+		return false;
+	}
+	finally {
+		frameIndex.unhold();
+	}
+  }
+
+  /**
+   * Holds a frame to write it out, waiting for it while it is claimed. Not
+   * every claim ends with the page written: some only look at the frame and
+   * release it unchanged, so a flush that must not miss a dirty page waits,
+   * and checks again.
+   * 
+   * @return true if the frame is held; false if it no longer holds the page,
+   * because eviction wrote the page out first, or the page was freed
+   */
+  boolean holdPage(FrameDesc frameIndex, int pid) {
+	
+	while (!frameIndex.tryHold()) {
+		if (frameIndex.retired)
+			return false; // taking frames out writes their pages first
+		frameIndex.awaitRelease();
+		if (frameIndex.getPid() != pid)
+			return false;
+	}
+	return true;
+  }
+
+  /**
+   * Gets the total number of buffer frames.
+   */
+  public int getNumBuffers() {
+    
+	if (parts != null) {
+		int sum = 0;
+		for (BufMgr part : parts)
+			sum += part.getNumBuffers();
+		return sum;
+	}
+	return frametab.length - numLent;
+  }
+
+  /**
+   * Creates an access strategy for a bulk operation, which confines the pages
+   * it misses to a small ring of frames. Sequential scans should use BULKREAD,
+   * bulk loads BULKWRITE, and maintenance passes over a whole file VACUUM.
+   * 
+   * @param type AccessStrategy.BULKREAD, BULKWRITE or VACUUM
+   * @throws IllegalArgumentException if the type is unknown
+   */
+  public AccessStrategy newAccessStrategy(int type) {
+	
+	int numbufs = getNumBuffers();
+	int partitions = parts != null ? parts.length : 1;
+	switch (type) {
+		case AccessStrategy.BULKREAD:
+		case AccessStrategy.VACUUM:
+			return new AccessStrategy(numbufs, 256 * 1024, partitions);
+		case AccessStrategy.BULKWRITE:
+			return new AccessStrategy(numbufs, 16 * 1024 * 1024, partitions); // writes need room to be flushed
+		default:
+			throw new IllegalArgumentException("unknown access strategy: " + type);
+	}
+  }
+
+  /**
+   * Gets the number of pages replaced in the pool so far.
+   */
+  public long getEvictionCount() {
+	  
+	if (parts != null) {
+		long sum = 0;
+		for (BufMgr part : parts)
+			sum += part.getEvictionCount();
+		return sum;
+	}
+	return evictions.sum();
+  }
+
+  /**
+   * Gets the number of replaced pages that were dirty, so the pin that
+   * replaced them had to write them synchronously. With the background writer
+   * running, this should stay a small fraction of {@link #getEvictionCount}.
+   */
+  public long getSyncWriteCount() {
+	  
+	if (parts != null) {
+		long sum = 0;
+		for (BufMgr part : parts)
+			sum += part.getSyncWriteCount();
+		return sum;
+	}
+	return syncWrites.sum();
+  }
+
+  /**
+   * Takes a snapshot of the statistics of the buffer manager, summed over its
+   * partitions. The counters are read one after the other while pins go on,
+   * so the snapshot is only roughly consistent.
+   */
+  public BufMgrStats getStats() {
+	
+	BufMgrStats stats = new BufMgrStats();
+	if (parts != null) {
+		for (BufMgr part : parts)
+			stats.add(part);
+	}
+	else
+		stats.add(this);
+	return stats;
+  }
+
+  /**
+   * Starts recording the calls to the buffer manager in a trace, for replaying
+   * them in a {@link TraceSimulator}. Pins, unpins, new pages and freed pages
+   * are recorded, in a few bytes each.
+   * 
+   * @param path the trace file, replaced if it exists
+   * @throws IllegalStateException if a trace is already being recorded
+   * @throws java.io.UncheckedIOException if the file cannot be created
+   */
+  public synchronized void startTrace(String path) {
+	
+	if (trace != null)
+		throw new IllegalStateException("already tracing");
+	trace = new TraceRecorder(path);
+  }
+
+  /**
+   * Stops recording the trace, if any, and closes its file.
+   */
+  public synchronized void stopTrace() {
+	
+	TraceRecorder t = trace;
+	trace = null;
+	if (t != null)
+		t.close(); // calls that still see it are dropped
+  }
+
+  /**
+   * Registers the buffer manager with the platform MBean server, under the
+   * next free id.
+   * 
+   * @throws IllegalStateException if the MBean server refuses it
+   */
+  private void registerMBean() {
+	
+	try {
+		ObjectName name = new ObjectName("bufmgr:type=BufMgr,id=" + mbeanIds.incrementAndGet());
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new BufMgrMetrics(this), name);
+		mbeanName = name;
+	}
+	catch (JMException exc) {
+		throw new IllegalStateException("cannot register the buffer manager: " + exc.getMessage(), exc);
+	}
+  }
+
+  /**
+   * Stops the background threads of the buffer manager, if any, and closes
+   * the disk backend. Pages are not flushed; call {@link #flushAllPages} first
+   * for that.
+   */
+  public void shutdown() {
+	  
+	if (parts != null) {
+		for (BufMgr part : parts) {
+			if (part.bgwriter != null)
+				part.bgwriter.shutdown();
+		}
+	}
+	if (bgwriter != null)
+		bgwriter.shutdown();
+	if (ioExecutor != null)
+		ioExecutor.shutdown();
+	stopTrace();
+	if (mbeanName != null) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		}
+		catch (JMException exc) {
+			// already gone
+		}
+		mbeanName = null;
+	}
+	disk.close();
+  }
+
+  /**
+   * Gets the total number of unpinned buffer frames.
+   */
+  public int getNumUnpinned() {
+	  
+	return getNumBuffers() - getNumPinned(); // frames claimed for replacement are not pinned
+  }
+
+  /**
+   * Gets the total number of pinned buffer frames.
+   */
+  public int getNumPinned() {
+	  
+	if (parts != null) {
+		int sum = 0;
+		for (BufMgr part : parts)
+			sum += part.getNumPinned();
+		return sum;
+	}
+	return tracker.getPinnedCount();
+  }
+
+  /**
+   * Gets the total number of dirty buffer frames.
+   */
+  public int getNumDirty() {
+	  
+	if (parts != null) {
+		int sum = 0;
+		for (BufMgr part : parts)
+			sum += part.getNumDirty();
+		return sum;
 	}
-	return unpinCount;
+	return tracker.getDirtyCount();
   }
 
 } // public class BufMgr implements GlobalConst
@@ -0,0 +1,213 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * Settings for a buffer manager. Minibase constructs its buffer manager with
+ * just a pool size, so every setting defaults to the matching "bufmgr.*"
+ * system property; that way modes can be selected when the JVM is started.
+ */
+public class BufMgrConfig implements Cloneable {
+
+  /** Names of the replacement policies. */
+  public static final String CLOCK = "Clock";
+  public static final String COST_CLOCK = "CostClock";
+  public static final String LRUK = "LRU-K";
+  public static final String TWOQ = "2Q";
+  public static final String ARC = "ARC";
+
+  /** Names of the disk backends. */
+  public static final String MINIBASE = "minibase";
+  public static final String CHANNEL = "channel";
+  public static final String MMAP = "mmap";
+  public static final String MEMORY = "memory";
+
+  /** Number of buffers in the buffer pool. */
+  public int numbufs;
+
+  /**
+   * Keep the buffer pool in one off-heap arena, rather than one heap page per
+   * frame (property "bufmgr.offheap").
+   */
+  public boolean offHeap;
+
+  /**
+   * Name of the replacement policy: CLOCK, COST_CLOCK (Clock that passes over
+   * dirty frames once), LRUK (with K = 2), TWOQ or ARC (property
+   * "bufmgr.replacer").
+   */
+  public String replacer;
+
+  /**
+   * Number of pages to read ahead when pins look like a sequential scan, or
+   * 0 to only read ahead on request (property "bufmgr.readahead").
+   */
+  public int readAhead;
+
+  /**
+   * Number of threads doing background reads (property "bufmgr.io.threads").
+   */
+  public int ioThreads;
+
+  /**
+   * Number of background writer threads, or 0 to write dirty victims only
+   * when they are replaced (property "bufmgr.bgwriter.threads").
+   */
+  public int bgWriterThreads;
+
+  /**
+   * Number of clean, unpinned frames the background writer keeps ahead of the
+   * replacer, or 0 for an eighth of the pool (property "bufmgr.bgwriter.target").
+   */
+  public int bgWriterTarget;
+
+  /**
+   * Milliseconds the background writer sleeps between rounds (property
+   * "bufmgr.bgwriter.delay").
+   */
+  public long bgWriterDelay;
+
+  /**
+   * Number of partitions to split the pool into, each with its own frames,
+   * page table and replacer (property "bufmgr.partitions"). A partition whose
+   * frames are all pinned borrows a frame from another one, so the pool only
+   * fills up when all of its frames are pinned; the frames are shared out
+   * evenly again when the pool is resized.
+   */
+  public int partitions;
+
+  /**
+   * Milliseconds a pin waits for a frame to become unpinned when all of them
+   * are pinned, or 0 to fail at once (property "bufmgr.pin.wait").
+   */
+  public long pinWait;
+
+  /**
+   * Name of the disk backend: MINIBASE for the Minibase disk manager, CHANNEL
+   * for a file of its own, MMAP for a memory-mapped file of its own, or MEMORY
+   * for a simulated disk in memory (property "bufmgr.disk").
+   */
+  public String disk;
+
+  /**
+   * File holding the pages for the CHANNEL and MMAP backends (property
+   * "bufmgr.disk.path").
+   */
+  public String diskPath;
+
+  /**
+   * Number of pages of the MEMORY backend (property "bufmgr.disk.pages").
+   */
+  public int diskPages;
+
+  /**
+   * Microseconds the MEMORY backend takes for a read and a write, besides the
+   * transfer (properties "bufmgr.disk.read.latency" and
+   * "bufmgr.disk.write.latency").
+   */
+  public long diskReadLatency;
+  public long diskWriteLatency;
+
+  /**
+   * Megabytes per second the MEMORY backend transfers, or 0 for unlimited
+   * (property "bufmgr.disk.bandwidth").
+   */
+  public long diskBandwidth;
+
+  /**
+   * Number of requests the MEMORY backend serves at once, or 0 for unlimited
+   * (property "bufmgr.disk.queue").
+   */
+  public int diskQueueDepth;
+
+  /**
+   * Backend to use instead of the one named by disk, or null.
+   */
+  public DiskBackend diskBackend;
+
+  /**
+   * Time one in this many pins and unpins for the latency statistics, or 0
+   * to time none (property "bufmgr.stats.sample"). Misses are always timed.
+   */
+  public int statsSample;
+
+  /**
+   * Register the buffer manager with the platform MBean server, as
+   * "bufmgr:type=BufMgr,id=<n>" (property "bufmgr.jmx").
+   */
+  public boolean jmx;
+
+  /**
+   * File to record the calls to the buffer manager in, for replaying them in
+   * a {@link TraceSimulator}, or null (property "bufmgr.trace").
+   */
+  public String traceFile;
+
+  /**
+   * Only let a missed page replace the victim's page if it was pinned more
+   * often lately, according to a TinyLFU frequency sketch; other pages are
+   * kept in a small probation ring of frames (property "bufmgr.admission").
+   */
+  public boolean admission;
+
+  /**
+   * Switch frames whose pin count stays contended to pin counts striped over
+   * the cores (property "bufmgr.pins.striped", false by default). Only the
+   * Clock policy can replace such frames, so the others ignore it.
+   */
+  public boolean stripedPins;
+
+  /**
+   * Number of pins of a frame that have to retry before it switches to
+   * striped pins (property "bufmgr.pins.stripe.after", 64 by default); 0
+   * switches any frame pinned twice at once, which is meant for tests.
+   */
+  public int stripeAfter;
+
+  /**
+   * Constructs the default settings for a pool of the given size.
+   * 
+   * @param numbufs number of buffers in the buffer pool
+   */
+  public BufMgrConfig(int numbufs) {
+    this.numbufs = numbufs;
+    offHeap = Boolean.getBoolean("bufmgr.offheap");
+    replacer = System.getProperty("bufmgr.replacer", CLOCK);
+    readAhead = Integer.getInteger("bufmgr.readahead", 0);
+    ioThreads = Integer.getInteger("bufmgr.io.threads", 4);
+    bgWriterThreads = Integer.getInteger("bufmgr.bgwriter.threads", 0);
+    bgWriterTarget = Integer.getInteger("bufmgr.bgwriter.target", 0);
+    bgWriterDelay = Long.getLong("bufmgr.bgwriter.delay", 20);
+    partitions = Integer.getInteger("bufmgr.partitions", 1);
+    pinWait = Long.getLong("bufmgr.pin.wait", 0);
+    disk = System.getProperty("bufmgr.disk", MINIBASE);
+    diskPath = System.getProperty("bufmgr.disk.path");
+    diskPages = Integer.getInteger("bufmgr.disk.pages", 1 << 16);
+    diskReadLatency = Long.getLong("bufmgr.disk.read.latency", 0);
+    diskWriteLatency = Long.getLong("bufmgr.disk.write.latency", 0);
+    diskBandwidth = Long.getLong("bufmgr.disk.bandwidth", 0);
+    diskQueueDepth = Integer.getInteger("bufmgr.disk.queue", 0);
+    statsSample = Integer.getInteger("bufmgr.stats.sample", 64);
+    jmx = Boolean.getBoolean("bufmgr.jmx");
+    traceFile = System.getProperty("bufmgr.trace");
+    admission = Boolean.getBoolean("bufmgr.admission");
+    stripedPins = Boolean.getBoolean("bufmgr.pins.striped");
+    stripeAfter = Integer.getInteger("bufmgr.pins.stripe.after", 64);
+  }
+
+  /**
+   * Gets a copy of these settings.
+   */
+  BufMgrConfig copy() {
+    try {
+      return (BufMgrConfig) clone();
+    } catch (CloneNotSupportedException exc) {
+      throw new AssertionError(exc);
+    }
+  }
+
+} // public class BufMgrConfig
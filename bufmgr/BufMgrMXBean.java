@@ -0,0 +1,64 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * The management interface of a buffer manager, registered with the platform
+ * MBean server when {@link BufMgrConfig#jmx} is set. Every attribute is read
+ * from a fresh {@link BufMgrStats} snapshot.
+ */
+public interface BufMgrMXBean {
+
+  /** Gets the number of buffer frames. */
+  int getNumBuffers();
+
+  /** Gets the number of pinned buffer frames. */
+  int getNumPinned();
+
+  /** Gets the number of dirty buffer frames. */
+  int getNumDirty();
+
+  /** Gets the number of hot buffer frames, with striped pin counts. */
+  int getNumStriped();
+
+  /** Gets the number of pins that found their page in the pool. */
+  long getHits();
+
+  /** Gets the number of pins that had to bring their page in. */
+  long getMisses();
+
+  /** Gets the fraction of pins that found their page in the pool. */
+  double getHitRatio();
+
+  /** Gets the number of pages replaced in the pool. */
+  long getEvictions();
+
+  /** Gets the number of replaced pages that had to be written first. */
+  long getSyncWrites();
+
+  /** Gets the number of pages read ahead in the background. */
+  long getReadAheads();
+
+  /** Gets the average number of frames the replacer looked at per victim. */
+  double getAverageSweepLength();
+
+  /** Gets the median time to serve a miss, in nanoseconds. */
+  long getMissLatencyMedian();
+
+  /** Gets the 99th percentile time to serve a miss, in nanoseconds. */
+  long getMissLatency99();
+
+  /** Gets the miss service times, one count per power of two nanoseconds. */
+  long[] getMissLatencyHistogram();
+
+  /** Gets the sampled pin times, one count per power of two nanoseconds. */
+  long[] getPinLatencyHistogram();
+
+  /** Gets the sampled unpin times, one count per power of two nanoseconds. */
+  long[] getUnpinLatencyHistogram();
+
+} // public interface BufMgrMXBean
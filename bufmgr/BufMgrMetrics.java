@@ -0,0 +1,88 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * Serves the management interface of a buffer manager from its statistics.
+ */
+class BufMgrMetrics implements BufMgrMXBean {
+
+  /** The buffer manager being managed. */
+  private final BufMgr bufmgr;
+
+  /**
+   * Constructs the management interface of the given buffer manager.
+   */
+  public BufMgrMetrics(BufMgr bufmgr) {
+    this.bufmgr = bufmgr;
+  }
+
+  public int getNumBuffers() {
+    return bufmgr.getStats().getNumBuffers();
+  }
+
+  public int getNumPinned() {
+    return bufmgr.getStats().getNumPinned();
+  }
+
+  public int getNumDirty() {
+    return bufmgr.getStats().getNumDirty();
+  }
+
+  public int getNumStriped() {
+    return bufmgr.getStats().getNumStriped();
+  }
+
+  public long getHits() {
+    return bufmgr.getStats().getHits();
+  }
+
+  public long getMisses() {
+    return bufmgr.getStats().getMisses();
+  }
+
+  public double getHitRatio() {
+    return bufmgr.getStats().getHitRatio();
+  }
+
+  public long getEvictions() {
+    return bufmgr.getStats().getEvictions();
+  }
+
+  public long getSyncWrites() {
+    return bufmgr.getStats().getSyncWrites();
+  }
+
+  public long getReadAheads() {
+    return bufmgr.getStats().getReadAheads();
+  }
+
+  public double getAverageSweepLength() {
+    return bufmgr.getStats().getAverageSweepLength();
+  }
+
+  public long getMissLatencyMedian() {
+    return bufmgr.getStats().getMissLatency(50);
+  }
+
+  public long getMissLatency99() {
+    return bufmgr.getStats().getMissLatency(99);
+  }
+
+  public long[] getMissLatencyHistogram() {
+    return bufmgr.getStats().getMissLatencyHistogram();
+  }
+
+  public long[] getPinLatencyHistogram() {
+    return bufmgr.getStats().getPinLatencyHistogram();
+  }
+
+  public long[] getUnpinLatencyHistogram() {
+    return bufmgr.getStats().getUnpinLatencyHistogram();
+  }
+
+} // class BufMgrMetrics implements BufMgrMXBean
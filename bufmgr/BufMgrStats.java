@@ -0,0 +1,193 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * A snapshot of the statistics of a buffer manager, taken by
+ * {@link BufMgr#getStats}. The counters run from the start of the buffer
+ * manager; subtract two snapshots to get the rates of an interval. Latencies
+ * are in nanoseconds, and kept in histograms with one bucket per power of two,
+ * so percentiles are rounded up to the next power of two.
+ */
+public class BufMgrStats {
+
+  private int numBuffers;
+  private int numPinned;
+  private int numDirty;
+  private int numStriped;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long syncWrites;
+  private long readAheads;
+  private long victimSearches;
+  private long framesSwept;
+  private long admissionRejects;
+  private long handOffs;
+  private final long[] missLatency = new long[LatencyHistogram.BUCKETS];
+  private final long[] pinLatency = new long[LatencyHistogram.BUCKETS];
+  private final long[] unpinLatency = new long[LatencyHistogram.BUCKETS];
+
+  /**
+   * Constructs an empty snapshot; the partitions are added to it one by one.
+   */
+  BufMgrStats() {
+  }
+
+  /**
+   * Adds the statistics of an unpartitioned buffer manager, or of a partition.
+   */
+  void add(BufMgr bufmgr) {
+    numBuffers += bufmgr.getNumBuffers();
+    numPinned += bufmgr.tracker.getPinnedCount();
+    numDirty += bufmgr.tracker.getDirtyCount();
+    numStriped += bufmgr.tracker.getStripedCount();
+    hits += bufmgr.hits.sum();
+    misses += bufmgr.misses.sum();
+    evictions += bufmgr.evictions.sum();
+    syncWrites += bufmgr.syncWrites.sum();
+    readAheads += bufmgr.readAheads.sum();
+    victimSearches += bufmgr.victimSearches.sum();
+    framesSwept += bufmgr.replacer.swept.sum();
+    admissionRejects += bufmgr.admissionRejects.sum();
+    handOffs += bufmgr.handOffs.sum();
+    bufmgr.missLatency.addTo(missLatency);
+    bufmgr.pinLatency.addTo(pinLatency);
+    bufmgr.unpinLatency.addTo(unpinLatency);
+  }
+
+  /** Gets the number of buffer frames. */
+  public int getNumBuffers() {
+    return numBuffers;
+  }
+
+  /** Gets the number of pinned buffer frames. */
+  public int getNumPinned() {
+    return numPinned;
+  }
+
+  /** Gets the number of dirty buffer frames. */
+  public int getNumDirty() {
+    return numDirty;
+  }
+
+  /** Gets the number of hot buffer frames, whose pins are counted on striped counters. */
+  public int getNumStriped() {
+    return numStriped;
+  }
+
+  /** Gets the number of pins that found their page in the pool. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Gets the number of pins that had to bring their page in. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Gets the fraction of pins that found their page in the pool, or 0 before the first pin. */
+  public double getHitRatio() {
+    return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  /** Gets the number of pages replaced in the pool. */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** Gets the number of replaced pages that were dirty, and had to be written first. */
+  public long getSyncWrites() {
+    return syncWrites;
+  }
+
+  /** Gets the number of pages read ahead or prefetched in the background. */
+  public long getReadAheads() {
+    return readAheads;
+  }
+
+  /** Gets the number of times the replacer was asked for a victim. */
+  public long getVictimSearches() {
+    return victimSearches;
+  }
+
+  /** Gets the number of frames the replacer looked at while picking victims. */
+  public long getFramesSwept() {
+    return framesSwept;
+  }
+
+  /** Gets the average number of frames the replacer looked at per victim. */
+  public double getAverageSweepLength() {
+    return victimSearches == 0 ? 0 : (double) framesSwept / victimSearches;
+  }
+
+  /** Gets the number of missed pages kept in probation instead of replacing the victim. */
+  public long getAdmissionRejects() {
+    return admissionRejects;
+  }
+
+  /** Gets the number of dirty frames the replacer passed over and handed to the background writer. */
+  public long getHandOffs() {
+    return handOffs;
+  }
+
+  /** Gets the histogram of the miss service times: the time a pin spent bringing its page in. */
+  public long[] getMissLatencyHistogram() {
+    return missLatency.clone();
+  }
+
+  /** Gets the histogram of the sampled pin times, hits and misses alike. */
+  public long[] getPinLatencyHistogram() {
+    return pinLatency.clone();
+  }
+
+  /** Gets the histogram of the sampled unpin times. */
+  public long[] getUnpinLatencyHistogram() {
+    return unpinLatency.clone();
+  }
+
+  /**
+   * Gets the given percentile of the miss service times, or 0 if there were
+   * no misses.
+   * 
+   * @param percentile between 0 and 100
+   */
+  public long getMissLatency(double percentile) {
+    return percentile(missLatency, percentile);
+  }
+
+  /**
+   * Gets the given percentile of a histogram, as the upper bound of the
+   * bucket it falls into.
+   */
+  static long percentile(long[] buckets, double percentile) {
+    long total = 0;
+    for (long count : buckets)
+      total += count;
+    if (total == 0)
+      return 0;
+    long rank = (long) Math.ceil(total * Math.max(0, Math.min(100, percentile)) / 100);
+    long seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= Math.max(1, rank))
+        return i == 0 ? 0 : (1L << i) - 1;
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Gets a one-line summary of the statistics.
+   */
+  public String toString() {
+    return String.format("buffers %d (%d pinned, %d dirty), hits %d, misses %d (%.1f%% hits), "
+        + "evictions %d (%d sync writes), read ahead %d, sweep %.1f, miss p50 %dns p99 %dns",
+        numBuffers, numPinned, numDirty, hits, misses, 100 * getHitRatio(), evictions, syncWrites,
+        readAheads, getAverageSweepLength(), getMissLatency(50), getMissLatency(99));
+  }
+
+} // public class BufMgrStats
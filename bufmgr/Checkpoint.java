@@ -0,0 +1,175 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes all dirty pages of a buffer pool to disk. The dirty frames are
+ * taken from the pool's dirty set, sorted by page number, and written in runs of
+ * consecutive pages, so the disk sees a few sequential writes instead of one
+ * random write per frame. Runs can be spread over several I/O threads. Once
+ * all runs are written, the disk backend is synced, so the pages are durable.
+ */
+class Checkpoint implements GlobalConst {
+
+  /** Longest run written at once; its frames are held meanwhile. */
+  private static final int MAX_RUN = 64;
+
+  /** The buffer manager being flushed. */
+  private final BufMgr bufmgr;
+
+  /** The dirty frames, as page number in the high half and frame number in the low half. */
+  private long[] dirty;
+
+  /** Number of dirty frames. */
+  private int count;
+
+  /**
+   * Collects the frames of the given buffer manager that are dirty right now.
+   */
+  public Checkpoint(BufMgr bufmgr) {
+
+    this.bufmgr = bufmgr;
+    FrameTracker tracker = bufmgr.tracker;
+    FrameDesc[] frametab = bufmgr.frametab;
+    dirty = new long[Math.max(16, tracker.getDirtyCount())];
+    for (int i = tracker.nextDirty(0); i >= 0 && i < frametab.length; i = tracker.nextDirty(i + 1)) {
+      int pid = frametab[i].getPid();
+      if (pid != INVALID_PAGEID)
+        add(pid, i);
+    }
+
+  } // public Checkpoint(BufMgr bufmgr)
+
+  /**
+   * Adds a dirty frame to the checkpoint.
+   */
+  void add(int pid, int frame) {
+    if (count == dirty.length)
+      dirty = Arrays.copyOf(dirty, 2 * count);
+    dirty[count++] = ((long) pid << 32) | frame;
+  }
+
+  /**
+   * Writes the collected frames, on the given executor if there is more than
+   * one run for each of its threads.
+   * 
+   * @param executor runs the writes in parallel, or null to write them here
+   * @param threads number of threads of the executor
+   */
+  public void run(ExecutorService executor, int threads) {
+
+    Arrays.sort(dirty, 0, count); // page numbers are never negative
+
+    if (executor == null || threads < 2 || count <= MAX_RUN) {
+      write(0, count);
+      bufmgr.disk.sync();
+      return;
+    }
+
+    // hand each thread a slice of the sorted frames, cut at a run boundary
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    int from = 0;
+    for (int t = threads; t > 0 && from < count; t--) {
+      int to = from + (count - from + t - 1) / t;
+      while (to < count && pid(to) == pid(to - 1) + 1)
+        to++;
+      final int start = from, end = to;
+      futures.add(executor.submit(new Runnable() {
+        public void run() {
+          write(start, end);
+        }
+      }));
+      from = to;
+    }
+
+    RuntimeException failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException exc) {
+        if (failure == null)
+          failure = exc.getCause() instanceof RuntimeException
+              ? (RuntimeException) exc.getCause() : new IllegalStateException(exc.getCause());
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+        failure = new IllegalStateException("checkpoint interrupted", exc);
+      }
+    }
+    if (failure != null)
+      throw failure;
+    bufmgr.disk.sync();
+
+  } // public void run(ExecutorService executor, int threads)
+
+  /**
+   * Writes the given slice of the sorted frames, run by run.
+   */
+  private void write(int from, int to) {
+
+    FrameDesc[] frametab = bufmgr.frametab;
+    int[] frames = new int[MAX_RUN];
+    int i = from;
+    while (i < to) {
+
+      // hold the frames of the next run that still hold the page and are dirty
+      int first = pid(i), n = 0;
+      for (; i < to && n < MAX_RUN && pid(i) == first + n; i++) {
+        if (frame(i) >= frametab.length)
+          break; // the pool shrank meanwhile
+        FrameDesc fdesc = frametab[frame(i)];
+        if (!fdesc.tryHold()) {
+          // claimed; the frame starts the next run, so we never wait with frames held
+          if (n > 0 || !bufmgr.holdPage(fdesc, pid(i)))
+            break;
+        }
+        if (fdesc.getPid() != pid(i) || fdesc.loading || !fdesc.getDirty()) {
+          fdesc.unhold();
+          break;
+        }
+        frames[n++] = fdesc.index;
+      }
+      if (n == 0) {
+        i++; // skip the frame we could not use
+        continue;
+      }
+
+      // cleared first, so concurrent changes dirty them again
+      for (int j = 0; j < n; j++)
+        frametab[frames[j]].setDirty(false);
+      try {
+        bufmgr.bufpool.writeRun(first, frames, n);
+      } catch (RuntimeException exc) {
+        for (int j = 0; j < n; j++)
+          frametab[frames[j]].setDirty(true);
+        throw exc;
+      } finally {
+        for (int j = 0; j < n; j++)
+          frametab[frames[j]].unhold();
+      }
+    }
+
+  } // private void write(int from, int to)
+
+  /** Gets the page number of the i-th sorted frame. */
+  private int pid(int i) {
+    return (int) (dirty[i] >>> 32);
+  }
+
+  /** Gets the frame number of the i-th sorted frame. */
+  private int frame(int i) {
+    return (int) dirty[i];
+  }
+
+} // class Checkpoint implements GlobalConst
@@ -6,8 +6,22 @@
 
 package bufmgr;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * The "Clock" replacement policy.
+ * The "Clock" replacement policy. The hand sweeps the frame states in the
+ * frame tracker's arrays directly, so it reads consecutive ints, and only
+ * touches a frame's pin count when it finds a candidate.
+ * 
+ * <p>The policy takes no lock: the hand is a counter that each sweeping thread
+ * advances with an atomic add, so several misses can look for victims at once
+ * and each gets frames of its own to look at. Reference bits are
+ * cleared with compare-and-set, and a victim is claimed through its pin count,
+ * which a concurrent pin can not slip past.
+ * 
+ * <p>Frames with striped pins (see {@link PinStripes}) stay PINNED, since their
+ * unpins can not tell when the last pin is gone. The hand gives them a second
+ * chance through the stripes' own reference bit, and then tries to claim them.
  */
  
 class Clock extends Replacer {
@@ -18,9 +32,9 @@ class Clock extends Replacer {
   protected static final int REFERENCED = 11;
   protected static final int PINNED = 12;
 
-  /** Clock head; required for the default clock algorithm. */
-  protected int head;
-  int numberOfBuffers;
+  /** Clock head, counting up forever; the frame under it is the count modulo the pool size. */
+  protected final AtomicLong head = new AtomicLong();
+  volatile int numberOfBuffers;
 
   /**
    * Constructs a clock replacer.
@@ -33,20 +47,35 @@ class Clock extends Replacer {
 
     // Initialize the frame states to AVAILABLE
     for (int i = 0; i < frametab.length; i++) {
-      frametab[i].state = AVAILABLE;
+      meta.setState(i, AVAILABLE);
     }
 
-    // Initialize the clock head
-    head = -1;
-
   } // public Clock(BufMgr bufmgr)
 
+  /**
+   * Notifies the replacer that the pool changes size; the clock head only
+   * sweeps the frames that are left. A sweep that started before a shrink may
+   * still pick a frame past the new end, but the buffer manager waits for
+   * such a frame to be released before it takes it out.
+   */
+   
+  public synchronized void resize(int numbufs) {
+	  
+	frametab = bufmgr.frametab;
+	for (int i = numberOfBuffers; i < numbufs; i++)
+		meta.setState(i, AVAILABLE);
+	numberOfBuffers = numbufs; // the new frames are AVAILABLE before sweeps can get to them
+	
+  }
+
   /**
    * Notifies the replacer of a new page.
    */
    
   public void newPage(FrameDesc fdesc) {
-    // no need to update frame state
+	  
+	fdesc.setState(REFERENCED); // pages read ahead survive one sweep before they are used
+	
   }
 
   /**
@@ -55,59 +84,156 @@ class Clock extends Replacer {
    
   public void freePage(FrameDesc fdesc) {
 	  
-    fdesc.state = AVAILABLE;
+    fdesc.setState(AVAILABLE);
 	
   }
 
   /**
-   * Notifies the replacer of a pined page.
+   * Notifies the replacer of a pined page, after the pin was taken; see
+   * unpinPage for how this orders with a concurrent unpin.
    */
   public void pinPage(FrameDesc fdesc) {
 	  
-	fdesc.state = PINNED;
+	if (meta.getState(fdesc.index) != PINNED) // hot frames are pinned without writing it again
+		fdesc.setState(PINNED);
 	
   }
 
   /**
-   * Notifies the replacer of an unpinned page.
+   * Notifies the replacer of an optimistic read; the reference bit is only
+   * written if it is not set already, so hot pages are read without writes.
+   */
+  public void readPage(FrameDesc fdesc) {
+	  
+	if (meta.getState(fdesc.index) == AVAILABLE)
+		meta.compareAndSetState(fdesc.index, AVAILABLE, REFERENCED);
+	
+  }
+
+  /**
+   * Notifies the replacer of an unpinned page. A pin can slip in between the
+   * check of the pin count and the state change, and its pinPage may see the
+   * frame still PINNED and leave it; so the count is checked again after the
+   * change, and a frame pinned meanwhile is put back to PINNED. Its pinner
+   * then unpins it later and marks it REFERENCED, or, if that unpin came
+   * first, the loop sees the count back at zero and marks it itself.
    */
    
   public void unpinPage(FrameDesc fdesc) {
 	  
-	  if (fdesc.pincnt == 0)
-		  fdesc.state = REFERENCED;
+	  // frames pinned only by the background writer or a flush keep their state
+	  while (fdesc.getPinCount() == 0 && meta.compareAndSetState(fdesc.index, PINNED, REFERENCED)) {
+		  if (fdesc.getPinCount() == 0)
+			  return;
+		  // a sweep may have cleared the reference bit already; the pin count still guards the frame
+		  if (!meta.compareAndSetState(fdesc.index, REFERENCED, PINNED))
+			  return;
+	  }
 	
   }
 
   /**
-   * Selects the best frame to use for pinning a new page.
+   * Selects the best frame to use for pinning a new page. Threads move the
+   * hand one frame at a time, and never wait for each other.
    * 
-   * @return victim frame number, or -1 if none available
+   * @return victim frame number (claimed for the caller), or -1 if none available
    */
    
   public int pickVictim() {
 
     int i=0;
-	int findVictim = 1;
+	int n = numberOfBuffers;
 	
-	while (findVictim == 1){
+	while (i <= 2 * n) {
 		
-		head = (head+1) % numberOfBuffers;
-		
-		if (i > 2 * numberOfBuffers)
-			return -1; // no buffer frame is free
+		int frame = (int) (head.getAndIncrement() % n); // no other thread looks at this tick
+		i++;	// continue to next buffer frame
 		
-		if (frametab[head].state == REFERENCED)
-			frametab[head].state = AVAILABLE;
+		if (sweep(frame, i)) {
+			swept.add(i);
+			return frame; // found the victim frame, and nobody pinned it meanwhile
+		}
+	}
+	
+	swept.add(i);
+	return -1; // no buffer frame is free
+
+  } // public int pick_victim()
+
+  /**
+   * Selects victims for several new pages in one sweep of the hand, rather
+   * than one sweep per page.
+   * 
+   * @return number of victims picked, fewer than wanted if frames ran out
+   */
+   
+  public int pickVictims(int[] frames, int count) {
+
+    int i=0;
+	int found = 0;
+	int last = 0; // frames looked at up to the last victim
+	int n = numberOfBuffers;
+	
+	while (found < count && i <= 2 * n) {
 		
-		else if (frametab[head].state == AVAILABLE)
-			findVictim = 0; // found the victim frame
+		int frame = (int) (head.getAndIncrement() % n);
+		i++;
 		
-		i++;	// continue to next buffer frame
+		if (sweep(frame, i - last)) {
+			frames[found++] = frame;
+			last = i;
+		}
 	}
 	
-	return head;
+	swept.add(i);
+	return found;
 
-  } // public int pick_victim()
+  } // public int pickVictims(int[] frames, int count)
+
+  /**
+   * Moves the hand past a frame: clears its reference bit, or claims it if
+   * it has none.
+   * 
+   * @param looked number of frames looked at for this victim so far, this one included
+   * @return true if the frame was claimed
+   */
+   
+  protected boolean sweep(int frame, int looked) {
+	  
+	int state = meta.getState(frame);
+	if (state == REFERENCED)
+		meta.compareAndSetState(frame, REFERENCED, AVAILABLE);
+	
+	else if (state == AVAILABLE)
+		return meta.tryClaim(frame);
+	
+	else if (state == PINNED) {
+		PinStripes hot = meta.getStripes(frame);
+		return hot != null && !hot.referenced() && meta.tryClaim(frame); // a hot frame that went cold
+	}
+	return false;
+	
+  }
+
+  /**
+   * Tells whether the policy can pick frames with striped pins as victims; the
+   * hand tries to claim them as it sweeps past.
+   */
+   
+  public boolean sweepsStripedPins() {
+	  
+	return true;
+	
+  }
+
+  /**
+   * Gets the frame after the clock head.
+   */
+   
+  public int nextVictimHint() {
+	  
+	return (int) (head.get() % numberOfBuffers);
+	
+  }
 
 } // class Clock extends Replacer
@@ -0,0 +1,77 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * The "Clock" replacement policy, weighed by the cost of eviction. Replacing a
+ * dirty frame costs a write before the read, so the hand passes over dirty
+ * frames once, as if they were referenced, and takes the next clean frame
+ * instead. A passed over frame is handed to the background writer, if there
+ * is one, which usually has it written by the time the hand comes round again;
+ * then it is claimed, written or not.
+ *
+ * <p>The hand only passes over dirty frames for a bounded number of frames per
+ * victim, so a pool full of dirty pages does not turn every miss into a sweep
+ * of the whole pool.
+ */
+
+class CostClock extends Clock {
+
+  /** State of an unreferenced dirty frame that the hand has passed over once. */
+  protected static final int DEFERRED = 13;
+
+  /** Number of frames the hand looks at for a clean victim, before it takes a dirty one. */
+  protected static final int LOOKAHEAD = 16;
+
+  /**
+   * Constructs a cost-aware clock replacer.
+   */
+
+  public CostClock(BufMgr bufmgr) {
+
+    super(bufmgr);
+
+  } // public CostClock(BufMgr bufmgr)
+
+  /**
+   * Notifies the replacer of an optimistic read; a passed over frame that is
+   * read is referenced again, like an available one.
+   */
+  public void readPage(FrameDesc fdesc) {
+
+	if (meta.getState(fdesc.index) == DEFERRED)
+		meta.compareAndSetState(fdesc.index, DEFERRED, REFERENCED);
+	else
+		super.readPage(fdesc);
+
+  }
+
+  /**
+   * Moves the hand past a frame, like Clock does, but passes over a dirty
+   * frame the first time it would claim it, and queues it to be written.
+   */
+
+  protected boolean sweep(int frame, int looked) {
+
+	int state = meta.getState(frame);
+	if (state == DEFERRED)
+		return meta.tryClaim(frame); // its extra chance is used up, clean or not
+
+	// half the pool at most, so a sweep still gets round to the deferred frames
+	if (state == AVAILABLE && meta.isDirty(frame) && looked <= Math.min(LOOKAHEAD, numberOfBuffers / 2)) {
+		if (meta.compareAndSetState(frame, AVAILABLE, DEFERRED)) {
+			BgWriter writer = bufmgr.bgwriter;
+			if (writer != null && writer.queue(frame))
+				bufmgr.handOffs.increment();
+		}
+		return false;
+	}
+	return super.sweep(frame, looked);
+
+  }
+
+} // class CostClock extends Clock
@@ -0,0 +1,126 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Where the buffer manager reads and writes its pages. Page numbers are handed
+ * out by the Minibase disk manager unless the backend allocates them itself,
+ * so most backends only have to store the pages; the byte buffer variants let
+ * it move page data without going through a heap Page. Implementations must be
+ * thread-safe.
+ */
+public abstract class DiskBackend implements GlobalConst {
+
+  /**
+   * Reads a page from disk into the given page.
+   */
+  public abstract void readPage(PageId pageno, Page page);
+
+  /**
+   * Writes the given page to disk.
+   */
+  public abstract void writePage(PageId pageno, Page page);
+
+  /**
+   * Reads a page from disk into the given buffer, starting at its position.
+   * The buffer's position and limit are left alone.
+   */
+  public void read(int pid, ByteBuffer dst) {
+    Page page = new Page();
+    readPage(new PageId(pid), page);
+    dst.put(dst.position(), page.getData(), 0, PAGE_SIZE);
+  }
+
+  /**
+   * Starts reading a page from disk into the given buffer, like {@link
+   * #read(int, ByteBuffer)}. By default the read is done on the given executor.
+   * 
+   * @param executor runs blocking reads, for backends without asynchronous I/O
+   * @return a future that completes when the page has been read
+   */
+  public CompletableFuture<Void> readAsync(final int pid, final ByteBuffer dst, Executor executor) {
+    return CompletableFuture.runAsync(new Runnable() {
+      public void run() {
+        read(pid, dst);
+      }
+    }, executor);
+  }
+
+  /**
+   * Writes a page to disk from the given buffer, starting at its position.
+   * The buffer's position and limit are left alone.
+   */
+  public void write(int pid, ByteBuffer src) {
+    Page page = new Page();
+    src.get(src.position(), page.getData(), 0, PAGE_SIZE);
+    writePage(new PageId(pid), page);
+  }
+
+  /**
+   * Reads a run of consecutive pages from disk, one buffer per page.
+   * 
+   * @param firstPid page number of the first page of the run
+   * @param dsts buffers to read the pages of the run into, in page order
+   * @param count number of pages in the run
+   */
+  public void readRun(int firstPid, ByteBuffer[] dsts, int count) {
+    for (int i = 0; i < count; i++)
+      read(firstPid + i, dsts[i]);
+  }
+
+  /**
+   * Writes a run of consecutive pages to disk, one buffer per page.
+   * 
+   * @param firstPid page number of the first page of the run
+   * @param srcs buffers holding the pages of the run, in page order
+   * @param count number of pages in the run
+   */
+  public void writeRun(int firstPid, ByteBuffer[] srcs, int count) {
+    for (int i = 0; i < count; i++)
+      write(firstPid + i, srcs[i]);
+  }
+
+  /**
+   * Allocates a run of pages.
+   * 
+   * @return page id of the first page of the run
+   */
+  public PageId allocatePage(int runSize) {
+    return Minibase.DiskManager.allocate_page(runSize);
+  }
+
+  /**
+   * Deallocates a page.
+   */
+  public void deallocatePage(PageId pageno) {
+    Minibase.DiskManager.deallocate_page(pageno);
+  }
+
+  /**
+   * Forces the pages written so far to stable storage, so that they survive a
+   * crash. By default there is nothing to force.
+   */
+  public void sync() {
+    // nothing buffered
+  }
+
+  /**
+   * Releases the resources of the backend; it is not used afterwards.
+   */
+  public void close() {
+    // nothing to release
+  }
+
+} // public abstract class DiskBackend implements GlobalConst
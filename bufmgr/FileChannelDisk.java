@@ -0,0 +1,286 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.Page;
+import global.PageId;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Stores the pages in a file of its own, page number times page size being
+ * the offset of a page. Pages are read and written with positional calls, so
+ * threads never wait on each other; in mapped mode the file is mapped into
+ * memory instead, which turns a read into a copy and suits read-mostly
+ * databases; pages past the end of the file go through the channel until the
+ * mapping is extended over them. Asynchronous reads go through an asynchronous channel on the
+ * same file, so they do not hold a thread while the disk works. Pages that
+ * were never written read as zeros.
+ */
+public class FileChannelDisk extends DiskBackend {
+
+  /** Pages per mapped region, 64MB worth. */
+  private static final int MAP_PAGES = (64 << 20) / PAGE_SIZE;
+
+  /** The file holding the pages. */
+  private final FileChannel channel;
+
+  /** The same file, for asynchronous reads; null in mapped mode. */
+  private final AsynchronousFileChannel asyncChannel;
+
+  /** True if the file is accessed through mappings. */
+  private final boolean mapped;
+
+  /** The mapped regions of the file, mapped when first needed. */
+  private volatile MappedByteBuffer[] maps = new MappedByteBuffer[0];
+
+  /**
+   * Opens the given file, creating it if it does not exist.
+   * 
+   * @param path name of the file holding the pages
+   * @param mapped true to map the file into memory
+   * @throws UncheckedIOException if the file cannot be opened
+   */
+  public FileChannelDisk(String path, boolean mapped) {
+    this.mapped = mapped;
+    try {
+      channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      asyncChannel = mapped ? null : AsynchronousFileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot open " + path, exc);
+    }
+  }
+
+  public void readPage(PageId pageno, Page page) {
+    read(pageno.pid, ByteBuffer.wrap(page.getData()));
+  }
+
+  public void writePage(PageId pageno, Page page) {
+    write(pageno.pid, ByteBuffer.wrap(page.getData()));
+  }
+
+  public void read(int pid, ByteBuffer dst) {
+
+    MappedByteBuffer map = mapped ? map(pid) : null;
+    if (map != null) {
+      dst.put(dst.position(), map, offset(pid), PAGE_SIZE);
+      return;
+    }
+
+    ByteBuffer buf = dst.duplicate();
+    buf.limit(buf.position() + PAGE_SIZE);
+    long pos = (long) pid * PAGE_SIZE;
+    try {
+      while (buf.hasRemaining()) {
+        int n = channel.read(buf, pos);
+        if (n < 0) {
+          while (buf.hasRemaining())
+            buf.put((byte) 0); // past the end of the file
+          break;
+        }
+        pos += n;
+      }
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot read page " + pid, exc);
+    }
+
+  } // public void read(int pid, ByteBuffer dst)
+
+  public CompletableFuture<Void> readAsync(final int pid, ByteBuffer dst, Executor executor) {
+
+    final CompletableFuture<Void> done = new CompletableFuture<Void>();
+    if (mapped) {
+      read(pid, dst); // just a copy
+      done.complete(null);
+      return done;
+    }
+
+    final ByteBuffer buf = dst.duplicate();
+    buf.limit(buf.position() + PAGE_SIZE);
+    asyncChannel.read(buf, (long) pid * PAGE_SIZE, null, new CompletionHandler<Integer, Void>() {
+      public void completed(Integer n, Void unused) {
+        if (n < 0) {
+          while (buf.hasRemaining())
+            buf.put((byte) 0); // past the end of the file
+        }
+        if (!buf.hasRemaining())
+          done.complete(null);
+        else
+          asyncChannel.read(buf, (long) (pid + 1) * PAGE_SIZE - buf.remaining(), null, this);
+      }
+      public void failed(Throwable exc, Void unused) {
+        done.completeExceptionally(new UncheckedIOException("cannot read page " + pid,
+            exc instanceof IOException ? (IOException) exc : new IOException(exc)));
+      }
+    });
+    return done;
+
+  } // public CompletableFuture<Void> readAsync(int pid, ByteBuffer dst, Executor executor)
+
+  public void write(int pid, ByteBuffer src) {
+
+    MappedByteBuffer map = mapped ? map(pid) : null;
+    if (map != null) {
+      map.put(offset(pid), src, src.position(), PAGE_SIZE);
+      return;
+    }
+
+    ByteBuffer buf = src.duplicate();
+    buf.limit(buf.position() + PAGE_SIZE);
+    long pos = (long) pid * PAGE_SIZE;
+    try {
+      while (buf.hasRemaining())
+        pos += channel.write(buf, pos);
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot write page " + pid, exc);
+    }
+
+  } // public void write(int pid, ByteBuffer src)
+
+  public void readRun(int firstPid, ByteBuffer[] dsts, int count) {
+
+    if (mapped || count == 1) {
+      super.readRun(firstPid, dsts, count);
+      return;
+    }
+
+    // a scattering read goes from the channel's position, which is shared
+    ByteBuffer[] bufs = new ByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      bufs[i] = dsts[i].duplicate();
+      bufs[i].limit(bufs[i].position() + PAGE_SIZE);
+    }
+    try {
+      synchronized (channel) {
+        channel.position((long) firstPid * PAGE_SIZE);
+        while (bufs[count - 1].hasRemaining()) {
+          if (channel.read(bufs) < 0) {
+            for (ByteBuffer buf : bufs)
+              while (buf.hasRemaining())
+                buf.put((byte) 0); // past the end of the file
+            break;
+          }
+        }
+      }
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot read pages " + firstPid + " to "
+          + (firstPid + count - 1), exc);
+    }
+
+  } // public void readRun(int firstPid, ByteBuffer[] dsts, int count)
+
+  public void writeRun(int firstPid, ByteBuffer[] srcs, int count) {
+
+    if (mapped || count == 1) {
+      super.writeRun(firstPid, srcs, count);
+      return;
+    }
+
+    // a gathering write goes to the channel's position, which is shared
+    ByteBuffer[] bufs = new ByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      bufs[i] = srcs[i].duplicate();
+      bufs[i].limit(bufs[i].position() + PAGE_SIZE);
+    }
+    try {
+      synchronized (channel) {
+        channel.position((long) firstPid * PAGE_SIZE);
+        while (bufs[count - 1].hasRemaining())
+          channel.write(bufs);
+      }
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot write pages " + firstPid + " to "
+          + (firstPid + count - 1), exc);
+    }
+
+  } // public void writeRun(int firstPid, ByteBuffer[] srcs, int count)
+
+  /**
+   * Forces the pages written so far to the disk: the changed mapped pages,
+   * and whatever the file system still holds of the file.
+   */
+  public void sync() {
+    try {
+      for (MappedByteBuffer map : maps) {
+        if (map != null)
+          map.force();
+      }
+      channel.force(false);
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot sync the file", exc);
+    }
+  }
+
+  /**
+   * Writes any changed mapped pages out, and closes the file.
+   */
+  public void close() {
+    sync();
+    try {
+      channel.close();
+      if (asyncChannel != null)
+        asyncChannel.close();
+    } catch (IOException exc) {
+      throw new UncheckedIOException(exc);
+    }
+  }
+
+  /**
+   * Gets the mapped region holding the given page, mapping it if needed. A
+   * region is mapped only as far as the file goes, since mapping past its end
+   * would make the file longer than the pages written to it; once the file
+   * has grown, the region is mapped again.
+   * 
+   * @return the region, or null if the page is past the end of the file
+   */
+  private MappedByteBuffer map(int pid) {
+
+    int r = pid / MAP_PAGES;
+    int end = offset(pid) + PAGE_SIZE;
+    MappedByteBuffer[] m = maps;
+    if (r < m.length && m[r] != null && m[r].capacity() >= end)
+      return m[r];
+
+    synchronized (this) {
+      m = maps;
+      if (r >= m.length || m[r] == null || m[r].capacity() < end) {
+        long start = (long) r * MAP_PAGES * PAGE_SIZE;
+        try {
+          long size = Math.min(channel.size() - start, (long) MAP_PAGES * PAGE_SIZE);
+          if (size < end)
+            return null; // read or written through the channel, which grows the file by that page only
+          m = Arrays.copyOf(m, Math.max(m.length, r + 1)); // published whole, never changed
+          m[r] = channel.map(FileChannel.MapMode.READ_WRITE, start, size - size % PAGE_SIZE);
+        } catch (IOException exc) {
+          throw new UncheckedIOException("cannot map page " + pid, exc);
+        }
+        maps = m;
+      }
+      return m[r];
+    }
+
+  } // private MappedByteBuffer map(int pid)
+
+  /**
+   * Gets the offset of a page in its mapped region.
+   */
+  private static int offset(int pid) {
+    return (pid % MAP_PAGES) * PAGE_SIZE;
+  }
+
+} // public class FileChannelDisk extends DiskBackend
@@ -6,59 +6,319 @@
 
 package bufmgr;
 
-import global.PageId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A frame descriptor; contains info about each page in the buffer pool.
+ * A frame descriptor; contains info about each page in the buffer pool. The
+ * pin count, replacer state, page number and dirty bit live in the frame
+ * tracker's arrays, at the frame's index; the descriptor only holds what
+ * threads need to wait for the frame.
  */
  
 class FrameDesc {
 
+  /** Pin count of a frame that has been claimed for replacement. */
+  static final int CLAIMED = -1;
+
+  /** Returned by unpin for frames with striped pins, which do not know their count. */
+  static final int UNCOUNTED = Integer.MAX_VALUE;
+
   /** Index in the buffer pool. */
   public int index;
-  
-  /** Identifies the frame's page. */
-  public PageId pageno;
 
-  /** The frame's pin count. */
-  public int pincnt;
+  /** True while the frame's page is being read in from disk. */
+  public volatile boolean loading;
+
+  /** True if pinning the frame's page should read the next pages ahead. */
+  public volatile boolean readahead;
+
+  /** Holds the metadata of the whole pool. */
+  private final FrameTracker tracker;
+
+  /** True once the frame was taken out of a shrinking pool; it stays claimed. */
+  public volatile boolean retired;
 
-  /** The frame's dirty status. */
-  public boolean dirty;
+  /** Latch that threads block on while the frame is claimed or loading. */
+  private final ReentrantLock latch;
 
-  /** Generic state used by replacers. */
-  public int state;
+  /** Signalled whenever the frame is released or finishes loading. */
+  private final Condition changed;
+
+  /** Completed along with the next signal, for asynchronous waiters; or null. */
+  private CompletableFuture<Void> waiters;
 
   /**
    * Default constructor; empty frame.
    */
    
-  public FrameDesc(int index) {
+  public FrameDesc(int index, FrameTracker tracker) {
     this.index = index;
-    pageno = new PageId();
-    pincnt = 0;
-    dirty = false;
-    state = 0;
+    this.tracker = tracker;
+    tracker.reset(index);
+    latch = new ReentrantLock();
+    changed = latch.newCondition();
   }
 
   
   /** Manage Pin Count */
   
   public int getPinCount() {
-	  return this.pincnt;
+	  return tracker.getPinCount(index);
 	  	  /** Retrieves the pin count of the current page */
   }
   
   public void setPinCount(int a) {
-	  this.pincnt = a;
+	  tracker.setPinCount(index, a);
 	  	   /** Sets the pin count of the current page, typically adds or subtracts 1 from current pin count */
   }
   
+  /**
+   * Gets the number of the frame's page, or INVALID_PAGEID if it has none.
+   */
+  public int getPid() {
+	  return tracker.getPid(index);
+  }
+
+  /**
+   * Sets the number of the frame's page.
+   */
+  public void setPid(int pid) {
+	  tracker.setPid(index, pid);
+  }
+
+  /**
+   * Gets the state the replacer keeps for the frame.
+   */
+  public int getState() {
+	  return tracker.getState(index);
+  }
+
+  /**
+   * Sets the state the replacer keeps for the frame.
+   */
+  public void setState(int state) {
+	  tracker.setState(index, state);
+  }
+
+  /**
+   * Atomically adds a pin to the frame, unless it is claimed for replacement.
+   * A frame whose pin count stays contended switches to striped pins.
+   *
+   * @return true if the pin was taken
+   */
+  public boolean tryPin() {
+	  boolean contended = false;
+	  for (;;) {
+		  PinStripes hot = tracker.getStripes(index);
+		  if (hot != null) {
+			  int state = hot.pin();
+			  if (state == PinStripes.OPEN)
+				  return true;
+			  if (state == PinStripes.CLOSING)
+				  Thread.onSpinWait(); // a claim is summing up the stripes
+			  continue; // otherwise the frame was claimed, and is back to its own pin count
+		  }
+		  int cnt = tracker.getOwnPinCount(index);
+		  if (cnt == CLAIMED)
+			  return false; // the frame is being replaced
+		  if (retired)
+			  return false; // the index may belong to a new frame by now
+		  if (tracker.compareAndSetPinCount(index, cnt, cnt + 1)) {
+			  if (cnt == 0) {
+				  tracker.nextVersion(index); // the new pinner may write to the page
+				  tracker.pinned(true);
+			  }
+			  else if (contended || tracker.stripeAfter == 0)
+				  tracker.contended(index); // if it stripes, our pin now holds the frame for the stripes
+			  return true;
+		  }
+		  contended = true;
+	  }
+  }
+
+  /**
+   * Gets the version of the frame, which changes whenever it goes from
+   * unpinned to pinned or claimed; see {@link FrameTracker#nextVersion}.
+   */
+  public int getVersion() {
+	  return tracker.getVersion(index);
+  }
+
+  /**
+   * Atomically removes a pin from the frame, if it has any.
+   *
+   * @return the new pin count, -1 if the frame was not pinned, or UNCOUNTED
+   * if the frame has striped pins
+   */
+  public int unpin() {
+	  PinStripes hot = tracker.getStripes(index);
+	  if (hot != null) {
+		  hot.unpin(); // the frame keeps a pin for the stripes, so it stays pinned
+		  return UNCOUNTED;
+	  }
+	  for (;;) {
+		  int cnt = tracker.getOwnPinCount(index);
+		  if (cnt <= 0)
+			  return -1; // nothing to unpin
+		  if (tracker.compareAndSetPinCount(index, cnt, cnt - 1)) {
+			  if (cnt == 1)
+				  tracker.pinned(false);
+			  return cnt - 1;
+		  }
+	  }
+  }
+
+  /**
+   * Claims an unpinned frame for replacement; no one can pin it until it is
+   * released again.
+   *
+   * @return true if the frame was unpinned and is now claimed
+   */
+  public boolean tryClaim() {
+	  return tracker.tryClaim(index);
+  }
+
+  /**
+   * Holds the frame to write its page out, unless it is claimed for
+   * replacement; see {@link FrameTracker#tryHold}. Holds do not count as
+   * pins, so freePage, PIN_MEMCPY and the pin counts do not see them.
+   *
+   * @return true if the frame is held
+   */
+  public boolean tryHold() {
+	  return tracker.tryHold(index);
+  }
+
+  /**
+   * Drops a hold taken with tryHold.
+   */
+  public void unhold() {
+	  tracker.unhold(index);
+  }
+
+  /**
+   * Tells whether the frame is held to be written out.
+   */
+  public boolean isHeld() {
+	  return tracker.isHeld(index);
+  }
+
+  /**
+   * Releases a claimed frame with the given pin count, and wakes up any
+   * threads waiting for it.
+   */
+  public void release(int cnt) {
+	  if (cnt > 0)
+		  tracker.pinned(true);
+	  tracker.setPinCount(index, cnt);
+	  signal();
+  }
+
+  /**
+   * Takes a claimed frame out of the pool for good, and wakes up any threads
+   * waiting for it; they have to look the page up again.
+   */
+  public void retire() {
+	  retired = true;
+	  signal();
+  }
+
+  /**
+   * Marks the frame's page as read in, and wakes up any threads waiting for it.
+   */
+  public void finishLoad() {
+	  loading = false;
+	  signal();
+  }
+
+  /**
+   * Blocks until the frame is no longer claimed for replacement, or retired.
+   */
+  public void awaitRelease() {
+	  latch.lock();
+	  try {
+		  while (!retired && tracker.getPinCount(index) == CLAIMED)
+			  changed.awaitUninterruptibly();
+	  } finally {
+		  latch.unlock();
+	  }
+  }
+
+  /**
+   * Blocks until the frame's page has been read in (or the read failed).
+   */
+  public void awaitLoad() {
+	  latch.lock();
+	  try {
+		  while (loading)
+			  changed.awaitUninterruptibly();
+	  } finally {
+		  latch.unlock();
+	  }
+  }
+
+  /**
+   * Gets a future that completes once the frame is no longer claimed for
+   * replacement, or retired; it may also complete early, so check again.
+   */
+  public CompletableFuture<Void> whenReleased() {
+	  latch.lock();
+	  try {
+		  return !retired && tracker.getPinCount(index) == CLAIMED ? waiter() : CompletableFuture.completedFuture(null);
+	  } finally {
+		  latch.unlock();
+	  }
+  }
+
+  /**
+   * Gets a future that completes once the frame's page has been read in (or
+   * the read failed); it may also complete early, so check again.
+   */
+  public CompletableFuture<Void> whenLoaded() {
+	  latch.lock();
+	  try {
+		  return loading ? waiter() : CompletableFuture.completedFuture(null);
+	  } finally {
+		  latch.unlock();
+	  }
+  }
+
+  /** Gets the future of the next signal; the latch must be held. */
+  private CompletableFuture<Void> waiter() {
+	  if (waiters == null)
+		  waiters = new CompletableFuture<Void>();
+	  return waiters;
+  }
+
+  /** Wakes up all threads waiting on the frame. */
+  private void signal() {
+	  CompletableFuture<Void> wake;
+	  latch.lock();
+	  try {
+		  changed.signalAll();
+		  wake = waiters;
+		  waiters = null;
+	  } finally {
+		  latch.unlock();
+	  }
+	  if (wake != null)
+		  wake.complete(null); // outside the latch, since it runs their callbacks
+  }
+
   /** Manage Dirty Bit */
   
   public boolean getDirty() {
-	  return this.dirty;
+	  return tracker.isDirty(index);
 		  /** Retrieves whether the current page is modified or not */
   }
+
+  /**
+   * Marks the frame's page as modified or not.
+   */
+  public void setDirty(boolean dirty) {
+	  tracker.setDirty(index, dirty);
+  }
    
 } // class FrameDesc
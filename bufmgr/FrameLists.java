@@ -0,0 +1,120 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * A few doubly-linked lists of frame numbers, threaded through shared link
+ * arrays; each frame is on at most one list at a time, so every operation is
+ * O(1) and nothing is allocated. Used by the list based replacers.
+ */
+class FrameLists {
+
+  /** Ends a list. */
+  public static final int NIL = -1;
+
+  /** Next and previous frame on the same list. */
+  private int[] next, prev;
+
+  /** The list each frame is on, or NIL. */
+  private int[] owner;
+
+  /** First and last frame, and length, of each list. */
+  private final int[] heads, tails, sizes;
+
+  /**
+   * Constructs the given number of empty lists, over the given number of frames.
+   */
+  public FrameLists(int numbufs, int numLists) {
+    next = new int[numbufs];
+    prev = new int[numbufs];
+    owner = new int[numbufs];
+    java.util.Arrays.fill(owner, NIL);
+    heads = new int[numLists];
+    tails = new int[numLists];
+    sizes = new int[numLists];
+    java.util.Arrays.fill(heads, NIL);
+    java.util.Arrays.fill(tails, NIL);
+  }
+
+  /**
+   * Makes room for frames up to the given number; the new ones are on no list.
+   */
+  public void grow(int numbufs) {
+    if (numbufs <= owner.length)
+      return;
+    int old = owner.length;
+    next = java.util.Arrays.copyOf(next, numbufs);
+    prev = java.util.Arrays.copyOf(prev, numbufs);
+    owner = java.util.Arrays.copyOf(owner, numbufs);
+    java.util.Arrays.fill(owner, old, numbufs, NIL);
+  }
+
+  /**
+   * Gets the number of frames on a list.
+   */
+  public int size(int list) {
+    return sizes[list];
+  }
+
+  /**
+   * Gets the first (least recently added) frame on a list, or NIL.
+   */
+  public int first(int list) {
+    return heads[list];
+  }
+
+  /**
+   * Gets the frame after the given one on its list, or NIL.
+   */
+  public int next(int frame) {
+    return next[frame];
+  }
+
+  /**
+   * Gets the list a frame is on, or NIL.
+   */
+  public int listOf(int frame) {
+    return owner[frame];
+  }
+
+  /**
+   * Appends a frame to the end of a list, taking it off its current list.
+   */
+  public void addLast(int list, int frame) {
+    if (owner[frame] != NIL)
+      remove(frame);
+    owner[frame] = list;
+    next[frame] = NIL;
+    prev[frame] = tails[list];
+    if (tails[list] == NIL)
+      heads[list] = frame;
+    else
+      next[tails[list]] = frame;
+    tails[list] = frame;
+    sizes[list]++;
+  }
+
+  /**
+   * Takes a frame off its list, if it is on one.
+   */
+  public void remove(int frame) {
+    int list = owner[frame];
+    if (list == NIL)
+      return;
+    if (prev[frame] == NIL)
+      heads[list] = next[frame];
+    else
+      next[prev[frame]] = next[frame];
+    if (next[frame] == NIL)
+      tails[list] = prev[frame];
+    else
+      prev[next[frame]] = prev[frame];
+    owner[frame] = NIL;
+    sizes[list]--;
+  }
+
+} // class FrameLists
@@ -0,0 +1,128 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Base class for the memory that holds the contents of the buffer frames.
+ * Callers work on a frame through the Page it is attached to while pinned.
+ */
+abstract class FramePool implements GlobalConst {
+
+  /** Where the pages are read from and written to. */
+  protected final DiskBackend disk;
+
+  /**
+   * Constructs a pool that does its I/O through the given backend.
+   */
+  protected FramePool(DiskBackend disk) {
+    this.disk = disk;
+  }
+
+  /**
+   * Gets the number of frames in the pool.
+   */
+  public abstract int size();
+
+  /**
+   * Changes the number of frames in the pool. Frames past the end of a
+   * smaller pool must be retired; frames added to a bigger pool are empty.
+   */
+  public abstract void resize(int numbufs);
+
+  /**
+   * Gets the page that pinners of a frame share. The frame must be pinned.
+   */
+  public abstract Page attach(FrameDesc fdesc);
+
+  /**
+   * Notifies the pool that the last pin on a frame was dropped.
+   */
+  public abstract void detach(FrameDesc fdesc);
+
+  /**
+   * Reads a page from disk into a frame that is being replaced.
+   */
+  public abstract void read(PageId pageno, int frame);
+
+  /**
+   * Starts reading a page from disk into a frame that is being replaced.
+   * 
+   * @param executor runs blocking reads, for backends without asynchronous I/O
+   * @return a future that completes when the page has been read
+   */
+  public abstract CompletableFuture<Void> readAsync(PageId pageno, int frame, Executor executor);
+
+  /**
+   * Writes a frame to disk, as the given page. The frame must be pinned or
+   * claimed.
+   */
+  public abstract void write(int pid, int frame);
+
+  /**
+   * Copies the given page into a frame that is being replaced.
+   */
+  public abstract void copyIn(int frame, Page page);
+
+  /**
+   * Copies a frame into the given page without pinning it, for optimistic
+   * reads. The copy may be torn by a concurrent writer, so callers have to
+   * validate it afterwards.
+   * 
+   * @return false if the frame is no longer in the pool
+   */
+  public abstract boolean copyOut(int frame, Page page);
+
+  /**
+   * Reads a run of consecutive pages from disk, into the given frames. The
+   * frames must be claimed, or pinned and loading.
+   * 
+   * @param firstPid page number of the first page of the run
+   * @param frames frames to read the pages of the run into, in page order
+   * @param count number of pages in the run
+   */
+  public void readRun(int firstPid, int[] frames, int count) {
+    ByteBuffer[] dsts = new ByteBuffer[count];
+    for (int i = 0; i < count; i++)
+      dsts[i] = target(frames[i]);
+    disk.readRun(firstPid, dsts, count);
+  }
+
+  /**
+   * Writes a run of consecutive pages to disk, from the given frames. The
+   * frames must be pinned or claimed.
+   * 
+   * @param firstPid page number of the first page of the run
+   * @param frames frames holding the pages of the run, in page order
+   * @param count number of pages in the run
+   */
+  public void writeRun(int firstPid, int[] frames, int count) {
+    ByteBuffer[] srcs = new ByteBuffer[count];
+    for (int i = 0; i < count; i++)
+      srcs[i] = buffer(frames[i]);
+    disk.writeRun(firstPid, srcs, count);
+  }
+
+  /**
+   * Gets a frame's memory as it should go to disk. The frame must be pinned
+   * or claimed.
+   */
+  protected abstract ByteBuffer buffer(int frame);
+
+  /**
+   * Gets a frame's memory for a page to be read into from disk. The frame
+   * must be claimed, or pinned and loading.
+   */
+  protected abstract ByteBuffer target(int frame);
+
+} // abstract class FramePool implements GlobalConst
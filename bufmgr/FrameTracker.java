@@ -0,0 +1,461 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the metadata of all frames in parallel primitive arrays: their pin
+ * counts, replacer states, page numbers, versions and dirty bits, along with live counts
+ * of pinned and dirty frames. Frame descriptors are views of one index into
+ * these arrays, so a replacer sweeping the pool reads consecutive ints rather
+ * than chasing one object per frame, and the buffer manager never has to scan
+ * the frame table to answer how many frames are pinned or which are dirty.
+ * The arrays come in fixed segments, so that they can grow along with the pool
+ * without losing concurrent updates.
+ *
+ * <p>Frames whose pin count stays contended can switch to striped pin counts
+ * (see {@link PinStripes}), if the replacer can sweep such frames; their pin
+ * count then holds one pin for the stripes, and claiming them sums the
+ * stripes up. Stripes take a few kilobytes each, so only a bounded number of
+ * frames get them, and only after a number of pins had to retry.
+ */
+
+class FrameTracker implements GlobalConst {
+
+  /** Frames per segment, as a shift. */
+  private static final int SEGMENT_SHIFT = 10;
+
+  /** Selects a frame within its segment. */
+  private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+  /** Most frames that can have striped pins at once. */
+  static final int MAX_STRIPED = 64;
+
+  /**
+   * The metadata of a segment of frames, one array per field.
+   */
+  private static final class Segment {
+
+    /** Pin counts; FrameDesc.CLAIMED while a frame is being replaced. */
+    final AtomicIntegerArray pins = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** Generic states used by replacers. */
+    final AtomicIntegerArray states = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** Page numbers, or INVALID_PAGEID for empty frames. */
+    final AtomicIntegerArray pids = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** Versions, moved on whenever the frame may start to change; see nextVersion. */
+    final AtomicIntegerArray versions = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** Striped pin counts of hot frames, or null. */
+    final AtomicReferenceArray<PinStripes> stripes = new AtomicReferenceArray<PinStripes>(1 << SEGMENT_SHIFT);
+
+    /** Pins that had to retry since the frame got its page; see contended. */
+    final AtomicIntegerArray retries = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** Holds taken to write the frame out, which keep it from being claimed; see tryHold. */
+    final AtomicIntegerArray holds = new AtomicIntegerArray(1 << SEGMENT_SHIFT);
+
+    /** One bit per frame, set while the frame is dirty. */
+    final AtomicLongArray dirty = new AtomicLongArray(1 << (SEGMENT_SHIFT - 6));
+
+    Segment() {
+      for (int i = 0; i < pids.length(); i++)
+        pids.set(i, INVALID_PAGEID);
+    }
+
+  } // private static final class Segment
+
+  /** The segments of the arrays. */
+  private volatile Segment[] segments;
+
+  /** Number of frames in the pool. */
+  private volatile int numbufs;
+
+  /** Number of dirty frames. */
+  private final LongAdder dirtyCount = new LongAdder();
+
+  /** Number of pinned frames, counting frames with striped pins as pinned. */
+  private final LongAdder pinnedCount = new LongAdder();
+
+  /** Number of frames with striped pins. */
+  private final AtomicInteger stripedCount = new AtomicInteger();
+
+  /** The frames with striped pins, plus one; 0 for a free slot. */
+  private final AtomicIntegerArray stripedFrames = new AtomicIntegerArray(MAX_STRIPED);
+
+  /** True if contended frames may switch to striped pins. */
+  volatile boolean striping;
+
+  /** Number of retried pins after which a frame switches to striped pins. */
+  volatile int stripeAfter;
+
+  /**
+   * Constructs a tracker for a buffer pool of the given size, with all frames
+   * empty, clean and unpinned.
+   */
+  public FrameTracker(int numbufs) {
+    segments = new Segment[0];
+    resize(numbufs);
+  }
+
+  /**
+   * Adapts the tracker to a pool of the given size. Frames past the end of a
+   * smaller pool must be clean.
+   */
+  public synchronized void resize(int numbufs) {
+    int count = (numbufs + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+    if (count > segments.length) {
+      Segment[] segs = java.util.Arrays.copyOf(segments, count);
+      for (int i = segments.length; i < count; i++)
+        segs[i] = new Segment();
+      segments = segs;
+    }
+    this.numbufs = numbufs;
+  }
+
+  /**
+   * Empties a frame added to the pool: unpinned, with state 0 and no page.
+   * Frames past the end of a smaller pool keep their old values until then.
+   */
+  public void reset(int frame) {
+    Segment seg = segment(frame);
+    int i = frame & SEGMENT_MASK;
+    seg.states.set(i, 0);
+    seg.pids.set(i, INVALID_PAGEID);
+    seg.pins.set(i, 0);
+    seg.retries.set(i, 0);
+    seg.holds.set(i, 0);
+    if (seg.stripes.getAndSet(i, null) != null) {
+      unlistStriped(frame);
+      stripedCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the segment holding the given frame.
+   */
+  private Segment segment(int frame) {
+    return segments[frame >>> SEGMENT_SHIFT];
+  }
+
+  // --------------------------------------------------------------------------
+
+  /**
+   * Gets the pin count of the given frame; for frames with striped pins, the
+   * count is only a snapshot.
+   */
+  public int getPinCount(int frame) {
+    Segment seg = segment(frame);
+    int i = frame & SEGMENT_MASK;
+    int cnt = seg.pins.get(i);
+    PinStripes hot = seg.stripes.get(i);
+    if (hot == null || cnt <= 0)
+      return cnt;
+    return Math.max(0, cnt - 1 + hot.sum());
+  }
+
+  /**
+   * Gets the frame's own pin count, without its striped pins.
+   */
+  public int getOwnPinCount(int frame) {
+    return segment(frame).pins.get(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Sets the pin count of the given frame.
+   */
+  public void setPinCount(int frame, int count) {
+    segment(frame).pins.set(frame & SEGMENT_MASK, count);
+  }
+
+  /**
+   * Atomically changes the pin count of the given frame, if it is as expected.
+   */
+  public boolean compareAndSetPinCount(int frame, int expect, int update) {
+    return segment(frame).pins.compareAndSet(frame & SEGMENT_MASK, expect, update);
+  }
+
+  /**
+   * Claims the given frame for replacement if it is unpinned; see
+   * {@link FrameDesc#tryClaim}.
+   */
+  public boolean tryClaim(int frame) {
+    Segment seg = segment(frame);
+    int i = frame & SEGMENT_MASK;
+    if (!seg.pins.compareAndSet(i, 0, FrameDesc.CLAIMED)) {
+      PinStripes hot = seg.stripes.get(i);
+      if (hot == null || !claimStriped(seg, i, hot))
+        return false;
+    }
+    // a hold that came first is writing the page out; waiting for it, rather
+    // than passing the frame over, picks the same victims whether or not
+    // a writer is at work, and the victim is clean by the time we have it
+    for (int spins = 0; seg.holds.get(i) != 0; spins++) {
+      if (spins < 100)
+        Thread.onSpinWait();
+      else
+        LockSupport.parkNanos(10000);
+    }
+    seg.retries.set(i, 0); // contention on the old page does not count against the next
+    seg.versions.incrementAndGet(i); // the page is about to be written out, or replaced
+    return true;
+  }
+
+  /**
+   * Claims a frame with striped pins, if its real pin count is zero. Once the
+   * stripes are closed, pins on them back out and the sum can only go down;
+   * the frame is claimed if its own pin count is still the one that makes the
+   * total zero. Pins caught backing out only make the claim fail.
+   */
+  private boolean claimStriped(Segment seg, int i, PinStripes hot) {
+    if (!hot.close())
+      return false; // someone else is claiming it
+    int expect = 1 - hot.sum();
+    boolean claimed = expect > 0 && seg.pins.compareAndSet(i, expect, FrameDesc.CLAIMED);
+    if (claimed) {
+      seg.stripes.set(i, null);
+      unlistStriped(hot.frame);
+      stripedCount.decrementAndGet();
+      pinnedCount.decrement();
+    }
+    hot.finishClose(claimed);
+    return claimed;
+  }
+
+  /**
+   * Holds a frame to write its page out, unless it is claimed. A hold keeps
+   * the frame from being replaced, like a pin, but is not one: it does not
+   * count in the pin count, so the frame still looks unpinned to callers, and
+   * pinners are never held up by it. A claim of a held frame waits for the
+   * hold to be dropped; a claim and a hold each publish themselves before
+   * they look for the other, so a hold never goes ahead of a claim.
+   *
+   * @return true if the frame is held, false if it is claimed
+   */
+  public boolean tryHold(int frame) {
+    Segment seg = segment(frame);
+    int i = frame & SEGMENT_MASK;
+    seg.holds.incrementAndGet(i);
+    if (seg.pins.get(i) != FrameDesc.CLAIMED)
+      return true;
+    seg.holds.decrementAndGet(i);
+    return false;
+  }
+
+  /**
+   * Drops a hold taken with tryHold.
+   */
+  public void unhold(int frame) {
+    segment(frame).holds.decrementAndGet(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Tells whether a frame is held to be written out.
+   */
+  public boolean isHeld(int frame) {
+    return segment(frame).holds.get(frame & SEGMENT_MASK) != 0;
+  }
+
+  /**
+   * Gets the striped pin counts of the given frame, or null if it has none.
+   */
+  public PinStripes getStripes(int frame) {
+    return segment(frame).stripes.get(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Records a pin of the given frame that had to retry, and switches the
+   * frame to striped pins once it has seen stripeAfter of them; a stripeAfter
+   * of 0 switches a frame on any pin while it is pinned already. The caller
+   * holds a pin in the frame's own pin count, which then becomes the one the
+   * frame keeps for the stripes, and the caller holds one on its stripe
+   * instead.
+   *
+   * @return true if the frame switched, false if it can not or already did
+   */
+  public boolean contended(int frame) {
+    if (!striping)
+      return false;
+    Segment seg = segment(frame);
+    int i = frame & SEGMENT_MASK;
+    if (seg.stripes.get(i) != null || seg.retries.incrementAndGet(i) < stripeAfter)
+      return false;
+    int slot = 0;
+    while (!stripedFrames.compareAndSet(slot, 0, frame + 1))
+      if (++slot == MAX_STRIPED)
+        return false; // enough frames are hot already
+    if (!seg.stripes.compareAndSet(i, null, new PinStripes(frame))) {
+      stripedFrames.set(slot, 0);
+      return false;
+    }
+    stripedCount.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Frees the slot of a frame that no longer has striped pins.
+   */
+  private void unlistStriped(int frame) {
+    for (int slot = 0; slot < MAX_STRIPED; slot++)
+      if (stripedFrames.compareAndSet(slot, frame + 1, 0))
+        return;
+  }
+
+  /**
+   * Gets the version of the given frame.
+   */
+  public int getVersion(int frame) {
+    return segment(frame).versions.get(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Moves the given frame on to a new version. This must be done after a
+   * frame goes from unpinned to pinned or claimed, and before its page is
+   * touched, so that an optimistic read that saw the frame unpinned sees
+   * the new version when it validates, if it may have seen any changes.
+   */
+  public void nextVersion(int frame) {
+    segment(frame).versions.incrementAndGet(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Gets the replacer state of the given frame.
+   */
+  public int getState(int frame) {
+    return segment(frame).states.get(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Sets the replacer state of the given frame.
+   */
+  public void setState(int frame, int state) {
+    segment(frame).states.set(frame & SEGMENT_MASK, state);
+  }
+
+  /**
+   * Atomically changes the replacer state of the given frame, if it is as expected.
+   */
+  public boolean compareAndSetState(int frame, int expect, int update) {
+    return segment(frame).states.compareAndSet(frame & SEGMENT_MASK, expect, update);
+  }
+
+  /**
+   * Gets the number of the page in the given frame, or INVALID_PAGEID.
+   */
+  public int getPid(int frame) {
+    return segment(frame).pids.get(frame & SEGMENT_MASK);
+  }
+
+  /**
+   * Sets the number of the page in the given frame.
+   */
+  public void setPid(int frame, int pid) {
+    segment(frame).pids.set(frame & SEGMENT_MASK, pid);
+  }
+
+  // --------------------------------------------------------------------------
+
+  /**
+   * Tells whether the given frame is dirty.
+   */
+  public boolean isDirty(int frame) {
+    return (segment(frame).dirty.get((frame & SEGMENT_MASK) >>> 6) & (1L << frame)) != 0;
+  }
+
+  /**
+   * Marks the given frame dirty or clean.
+   *
+   * @return true if the frame's dirty status changed
+   */
+  public boolean setDirty(int frame, boolean dirty) {
+    AtomicLongArray bits = segment(frame).dirty;
+    int w = (frame & SEGMENT_MASK) >>> 6;
+    long bit = 1L << frame;
+    for (;;) {
+      long word = bits.get(w);
+      if (((word & bit) != 0) == dirty)
+        return false;
+      if (bits.compareAndSet(w, word, word ^ bit)) {
+        if (dirty)
+          dirtyCount.increment();
+        else
+          dirtyCount.decrement();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gets the first dirty frame at or after the given one, or -1 if there is none.
+   */
+  public int nextDirty(int from) {
+    int end = numbufs;
+    if (from >= end)
+      return -1;
+    int w = from >>> 6;
+    long word = segment(from).dirty.get((from & SEGMENT_MASK) >>> 6) & (-1L << from);
+    for (;;) {
+      if (word != 0) {
+        int frame = (w << 6) + Long.numberOfTrailingZeros(word);
+        return frame < end ? frame : -1;
+      }
+      if ((++w << 6) >= end)
+        return -1;
+      word = segment(w << 6).dirty.get(((w << 6) & SEGMENT_MASK) >>> 6);
+    }
+  }
+
+  /**
+   * Records that a frame went from unpinned to pinned, or back.
+   */
+  public void pinned(boolean pinned) {
+    if (pinned)
+      pinnedCount.increment();
+    else
+      pinnedCount.decrement();
+  }
+
+  /**
+   * Gets the number of dirty frames.
+   */
+  public int getDirtyCount() {
+    return dirtyCount.intValue();
+  }
+
+  /**
+   * Gets the number of pinned frames. Frames with striped pins are counted
+   * as pinned only if their stripes have pins, which takes a look at each.
+   */
+  public int getPinnedCount() {
+    int count = pinnedCount.intValue();
+    if (stripedCount.get() == 0)
+      return count;
+    for (int slot = 0; slot < MAX_STRIPED; slot++) {
+      int frame = stripedFrames.get(slot) - 1;
+      if (frame >= 0 && getStripes(frame) != null && getPinCount(frame) == 0)
+        count--; // only the pin for the stripes is left
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of frames with striped pins.
+   */
+  public int getStripedCount() {
+    return stripedCount.get();
+  }
+
+} // class FrameTracker implements GlobalConst
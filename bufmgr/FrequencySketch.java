@@ -0,0 +1,129 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * Estimates how often each page was pinned lately, for the TinyLFU admission
+ * policy. It is a count-min sketch of 4-bit counters, sixteen to a long, with
+ * one long per frame: a page is counted in four counters, and its frequency
+ * is the smallest of them. Once the pool's size ten times over has been
+ * pinned, all counters are halved, so old popularity fades. Only one pin
+ * in four is counted, hits and misses alike, so that pins of resident pages
+ * seldom write to the shared table; the estimates keep their proportions.
+ * The pins are picked by a random sequence of each thread, which starts out
+ * the same for every sketch, so a trace replayed in one thread picks the same
+ * pins as when it was recorded.
+ * Updates from concurrent pins are not synchronized; a lost update only
+ * makes an estimate a little lower.
+ */
+class FrequencySketch {
+
+  /** Mixes the page number differently for each of the four counters. */
+  private static final long[] SEEDS = {
+      0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+  /** One in this many pins is counted; a power of two. */
+  private static final int SAMPLE = 4;
+
+  /** Keeps the low three bits of each counter, after a shift halved them. */
+  private static final long HALF_MASK = 0x7777777777777777L;
+
+  /** The counters. */
+  private final long[] table;
+
+  /** Selects a long of the table. */
+  private final int mask;
+
+  /** Number of counted pins after which the counters are halved. */
+  private final int sampleSize;
+
+  /** Number of pins counted since the counters were last halved. */
+  private int additions;
+
+  /** State of each thread's random sequence, which picks the pins to count. */
+  private final ThreadLocal<int[]> samplers = new ThreadLocal<int[]>() {
+    protected int[] initialValue() {
+      return new int[] {0x2545F491};
+    }
+  };
+
+  /**
+   * Constructs an empty sketch for a pool of the given size.
+   */
+  public FrequencySketch(int numbufs) {
+    table = new long[Integer.highestOneBit(Math.max(16, numbufs - 1)) << 1];
+    mask = table.length - 1;
+    sampleSize = 10 * Math.max(16, numbufs) / SAMPLE;
+  }
+
+  /**
+   * Counts a pin of the given page, if it is sampled.
+   */
+  public void increment(int pid) {
+    int[] sampler = samplers.get();
+    int x = sampler[0];
+    x ^= x << 13; // xorshift
+    x ^= x >>> 17;
+    x ^= x << 5;
+    sampler[0] = x;
+    if (((x >>> 24) & (SAMPLE - 1)) != 0)
+      return;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      long h = hash(pid, i);
+      int index = (int) h & mask;
+      int shift = (int) (h >>> 60) << 2; // one of the sixteen counters of the long
+      long word = table[index];
+      if (((word >>> shift) & 0xF) < 0xF) {
+        table[index] = word + (1L << shift); // may overwrite a concurrent update, which is then lost
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) // racy too; ageing a little late does no harm
+      age();
+  }
+
+  /**
+   * Gets the estimated number of recent pins of the given page, up to 15.
+   */
+  public int frequency(int pid) {
+    int min = 0xF;
+    for (int i = 0; i < 4; i++) {
+      long h = hash(pid, i);
+      min = Math.min(min, (int) (table[(int) h & mask] >>> ((int) (h >>> 60) << 2)) & 0xF);
+    }
+    return min;
+  }
+
+  /**
+   * Tells whether a missed page should replace the victim's page, which it
+   * does only if it was pinned more often lately.
+   */
+  public boolean admit(int candidate, int victim) {
+    return frequency(candidate) > frequency(victim);
+  }
+
+  /**
+   * Halves all counters.
+   */
+  private synchronized void age() {
+    if (additions < sampleSize)
+      return; // another thread just did
+    for (int i = 0; i < table.length; i++)
+      table[i] = (table[i] >>> 1) & HALF_MASK;
+    additions /= 2;
+  }
+
+  /**
+   * Gets the hash of the given page for the given counter.
+   */
+  private static long hash(int pid, int i) {
+    long h = (pid + 1) * SEEDS[i];
+    return h ^ (h >>> 29);
+  }
+
+} // class FrequencySketch
@@ -0,0 +1,136 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * A bounded list of page numbers that were recently evicted, in the order
+ * they were added, with O(1) lookup and removal. Replacers use it to remember
+ * the history of pages that are no longer in the pool. Each entry can carry a
+ * timestamp.
+ */
+class GhostList {
+
+  /** Ends the list. */
+  private static final int NIL = -1;
+
+  /** Maps page numbers to their slots. */
+  private final IntMap slots;
+
+  /** Page number, timestamp and neighbours of each slot. */
+  private final int[] pids, next, prev;
+  private final long[] stamps;
+
+  /** Oldest and newest slot, and the head of the free slot chain. */
+  private int head, tail, free;
+
+  /** Number of pages on the list. */
+  private int size;
+
+  /**
+   * Constructs an empty list that holds at most the given number of pages.
+   */
+  public GhostList(int capacity) {
+    capacity = Math.max(1, capacity);
+    slots = new IntMap(capacity);
+    pids = new int[capacity];
+    next = new int[capacity];
+    prev = new int[capacity];
+    stamps = new long[capacity];
+    for (int i = 0; i < capacity; i++)
+      next[i] = i + 1 < capacity ? i + 1 : NIL;
+    head = tail = NIL;
+    free = 0;
+  }
+
+  /**
+   * Gets a copy of the list that holds at most the given number of pages; if
+   * there are more, the oldest ones are dropped.
+   */
+  public GhostList resized(int capacity) {
+    GhostList list = new GhostList(capacity);
+    for (int slot = head; slot != NIL; slot = next[slot])
+      list.add(pids[slot], stamps[slot]);
+    return list;
+  }
+
+  /**
+   * Gets the number of pages on the list.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Tells whether a page is on the list.
+   */
+  public boolean contains(int pid) {
+    return slots.get(pid) != IntMap.NOT_FOUND;
+  }
+
+  /**
+   * Adds a page as the newest entry, dropping the oldest one if the list is
+   * full. The page must not be on the list already.
+   */
+  public void add(int pid, long stamp) {
+    if (free == NIL)
+      removeOldest();
+    int slot = free;
+    free = next[slot];
+    pids[slot] = pid;
+    stamps[slot] = stamp;
+    next[slot] = NIL;
+    prev[slot] = tail;
+    if (tail == NIL)
+      head = slot;
+    else
+      next[tail] = slot;
+    tail = slot;
+    slots.putIfAbsent(pid, slot);
+    size++;
+  }
+
+  /**
+   * Removes a page from the list.
+   *
+   * @return the page's timestamp, or -1 if it was not on the list
+   */
+  public long remove(int pid) {
+    int slot = slots.get(pid);
+    if (slot == IntMap.NOT_FOUND)
+      return -1;
+    long stamp = stamps[slot];
+    unlink(slot);
+    return stamp;
+  }
+
+  /**
+   * Removes the oldest page from the list, if there is one.
+   */
+  public void removeOldest() {
+    if (head != NIL)
+      unlink(head);
+  }
+
+  /**
+   * Takes a slot off the list, and puts it on the free chain.
+   */
+  private void unlink(int slot) {
+    slots.remove(pids[slot], slot);
+    if (prev[slot] == NIL)
+      head = next[slot];
+    else
+      next[prev[slot]] = next[slot];
+    if (next[slot] == NIL)
+      tail = prev[slot];
+    else
+      prev[next[slot]] = prev[slot];
+    next[slot] = free;
+    free = slot;
+    size--;
+  }
+
+} // class GhostList
@@ -0,0 +1,85 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The classic buffer pool: one heap Page per frame, shared directly with the
+ * frame's pinners.
+ */
+class HeapFramePool extends FramePool {
+
+  /** Actual pool of pages (can be viewed as an array of byte arrays). */
+  protected volatile Page[] pages;
+
+  /**
+   * Constructs a pool of the given number of frames.
+   */
+  public HeapFramePool(int numbufs, DiskBackend disk) {
+    super(disk);
+    pages = new Page[numbufs];
+    for (int i = 0; i < numbufs; i++)
+      pages[i] = new Page();
+  }
+
+  public int size() {
+    return pages.length;
+  }
+
+  public synchronized void resize(int numbufs) {
+    Page[] tab = java.util.Arrays.copyOf(pages, numbufs); // the remaining pages stay where they are
+    for (int i = pages.length; i < numbufs; i++)
+      tab[i] = new Page();
+    pages = tab;
+  }
+
+  public Page attach(FrameDesc fdesc) {
+    return pages[fdesc.index];
+  }
+
+  public void detach(FrameDesc fdesc) {
+    // the page stays where it is
+  }
+
+  public void read(PageId pageno, int frame) {
+    disk.readPage(pageno, pages[frame]);
+  }
+
+  public CompletableFuture<Void> readAsync(PageId pageno, int frame, Executor executor) {
+    return disk.readAsync(pageno.pid, ByteBuffer.wrap(pages[frame].getData()), executor);
+  }
+
+  public void write(int pid, int frame) {
+    disk.writePage(new PageId(pid), pages[frame]);
+  }
+
+  public void copyIn(int frame, Page page) {
+    pages[frame].copyPage(page);
+  }
+
+  public boolean copyOut(int frame, Page page) {
+    Page[] tab = pages; // may be shrinking
+    if (frame >= tab.length)
+      return false;
+    page.copyPage(tab[frame]);
+    return true;
+  }
+
+  protected ByteBuffer buffer(int frame) {
+    return ByteBuffer.wrap(pages[frame].getData());
+  }
+
+  protected ByteBuffer target(int frame) {
+    return ByteBuffer.wrap(pages[frame].getData());
+  }
+
+} // class HeapFramePool extends FramePool
@@ -0,0 +1,147 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+
+/**
+ * An open addressing hash map from non-negative ints to ints, using linear
+ * probing. Keys and values are stored side by side in one int array, so a
+ * lookup touches one or two cache lines and never allocates. Not thread-safe,
+ * but a lookup racing with an update always terminates; callers validate it.
+ */
+
+class IntMap implements GlobalConst {
+
+  /** Returned by get when the key is not present. */
+  public static final int NOT_FOUND = -1;
+
+  /** Marks an empty slot; page numbers are never negative. */
+  private static final int EMPTY = INVALID_PAGEID;
+
+  /** Keys at even indexes, their values right after them. */
+  private int[] table;
+
+  /** Number of keys in the map. */
+  private int size;
+
+  /**
+   * Constructs a map that can hold the given number of keys without growing.
+   */
+  public IntMap(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(8, 2 * expected - 1)) << 1;
+    table = new int[2 * capacity];
+    java.util.Arrays.fill(table, EMPTY);
+  }
+
+  /**
+   * Gets the value of the given key, or NOT_FOUND if it is not present. Keys
+   * must not be negative, or they could match an empty slot.
+   */
+  public int get(int key) {
+    int[] tab = table; // may be replaced by a concurrent grow
+    int mask = (tab.length >> 1) - 1;
+    for (int i = hash(key) & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+      int k = tab[2 * i];
+      if (k == EMPTY)
+        return NOT_FOUND;
+      if (k == key)
+        return tab[2 * i + 1];
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Adds the given key, unless it is already present.
+   *
+   * @return the existing value of the key, or NOT_FOUND if it was added
+   */
+  public int putIfAbsent(int key, int value) {
+    int mask = (table.length >> 1) - 1;
+    int i = hash(key) & mask;
+    for (int k; (k = table[2 * i]) != EMPTY; i = (i + 1) & mask) {
+      if (k == key)
+        return table[2 * i + 1];
+    }
+    table[2 * i + 1] = value; // the value is in place before the key shows up
+    table[2 * i] = key;
+    if (++size > (mask + 1) / 2)
+      grow();
+    return NOT_FOUND;
+  }
+
+  /**
+   * Removes the given key, if it still has the given value.
+   *
+   * @return true if the key was removed
+   */
+  public boolean remove(int key, int value) {
+    int mask = (table.length >> 1) - 1;
+    int i = hash(key) & mask;
+    for (int k; (k = table[2 * i]) != key; i = (i + 1) & mask) {
+      if (k == EMPTY)
+        return false;
+    }
+    if (table[2 * i + 1] != value)
+      return false;
+
+    // shift later keys of the probe sequence back, so no tombstones are needed
+    for (int j = (i + 1) & mask; ; j = (j + 1) & mask) {
+      int k = table[2 * j];
+      if (k == EMPTY)
+        break;
+      int home = hash(k) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        table[2 * i + 1] = table[2 * j + 1];
+        table[2 * i] = k;
+        i = j;
+      }
+    }
+    table[2 * i] = EMPTY;
+    table[2 * i + 1] = NOT_FOUND; // no stale value for a racing lookup to find
+    size--;
+    return true;
+  }
+
+  /**
+   * Gets the number of keys in the map.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Doubles the capacity of the map. The new table is filled in before it is
+   * published, so lookups keep working on the old one meanwhile.
+   */
+  private void grow() {
+    int[] old = table;
+    int[] tab = new int[2 * old.length];
+    java.util.Arrays.fill(tab, EMPTY);
+    int mask = (tab.length >> 1) - 1;
+    for (int j = 0; j < old.length; j += 2) {
+      int k = old[j];
+      if (k == EMPTY)
+        continue;
+      int i = hash(k) & mask;
+      while (tab[2 * i] != EMPTY)
+        i = (i + 1) & mask;
+      tab[2 * i] = k;
+      tab[2 * i + 1] = old[j + 1];
+    }
+    table = tab;
+  }
+
+  /**
+   * Scrambles the key so that runs of page numbers do not form probe chains.
+   */
+  private static int hash(int key) {
+    int h = key * 0x85EBCA6B;
+    return h ^ (h >>> 15);
+  }
+
+} // class IntMap implements GlobalConst
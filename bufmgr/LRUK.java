@@ -0,0 +1,316 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The "LRU-K" replacement policy, with K = 2: evicts the page whose second
+ * most recent reference is the oldest. Pages referenced only once go first,
+ * in LRU order, so a scan cannot push out pages that are used repeatedly.
+ * Reference times of evicted pages are kept for a while, so that a page that
+ * comes back soon is not treated as new.
+ * 
+ * <p>Pinning just records a timestamp, without a lock: the two reference
+ * times of each frame are kept in an atomic array, and a pin swaps its time
+ * in. The frames are kept in a min-heap whose keys are only brought up to
+ * date when they reach the top during victim selection; since keys only ever
+ * grow, a stale top is pushed down until an up to date one surfaces, which is
+ * the right victim. Two pins of the same frame at the same time may record
+ * either one's time as the earlier reference, and a pin racing with a resize
+ * may be lost; neither matters much to the policy.
+ */
+class LRUK extends Replacer {
+
+  /** Marks a frame that is not in the heap. */
+  private static final int NONE = -1;
+
+  /** Frames not holding a page. */
+  private final FrameLists free;
+
+  /** Page held by each frame, for its history once it is evicted. */
+  private int[] pids;
+
+  /** Most recent and second most recent reference time of each frame's page, side by side. */
+  private volatile AtomicLongArray times;
+
+  /** Heap of frames holding pages, and the keys they are ordered by. */
+  private int[] heap;
+  private long[] keyLast, keyPenultimate;
+
+  /** Position of each frame in the heap, or NONE. */
+  private int[] pos;
+
+  /** Number of frames in the heap. */
+  private int size;
+
+  /** Number of frames the policy tracks. */
+  private int numbufs;
+
+  /** Last reference time of recently evicted pages. */
+  private GhostList history;
+
+  /** Start of the clock that reference times are read from, so they are all positive. */
+  private final long epoch = System.nanoTime() - 1;
+
+  /**
+   * Constructs an LRU-2 replacer.
+   */
+  public LRUK(BufMgr bufmgr) {
+
+    super(bufmgr);
+    numbufs = bufmgr.getNumBuffers();
+    free = new FrameLists(numbufs, 1);
+    pids = new int[numbufs];
+    times = new AtomicLongArray(2 * numbufs);
+    heap = new int[numbufs];
+    keyLast = new long[numbufs];
+    keyPenultimate = new long[numbufs];
+    pos = new int[numbufs];
+    history = new GhostList(numbufs);
+    for (int i = 0; i < numbufs; i++) {
+      pids[i] = INVALID_PAGEID;
+      pos[i] = NONE;
+      free.addLast(0, i);
+    }
+
+  } // public LRUK(BufMgr bufmgr)
+
+  /**
+   * Notifies the replacer that the pool changes size.
+   */
+  public synchronized void resize(int numbufs) {
+
+    frametab = bufmgr.frametab;
+    if (numbufs > pids.length) {
+      int old = pids.length;
+      free.grow(numbufs);
+      pids = java.util.Arrays.copyOf(pids, numbufs);
+      AtomicLongArray grown = new AtomicLongArray(2 * numbufs);
+      for (int i = 0; i < 2 * old; i++)
+        grown.set(i, times.get(i));
+      times = grown;
+      heap = java.util.Arrays.copyOf(heap, numbufs);
+      keyLast = java.util.Arrays.copyOf(keyLast, numbufs);
+      keyPenultimate = java.util.Arrays.copyOf(keyPenultimate, numbufs);
+      pos = java.util.Arrays.copyOf(pos, numbufs);
+      java.util.Arrays.fill(pos, old, numbufs, NONE);
+    }
+    for (int f = this.numbufs; f < numbufs; f++) {
+      pids[f] = INVALID_PAGEID;
+      free.addLast(0, f);
+    }
+    for (int f = numbufs; f < this.numbufs; f++) {
+      if (pos[f] != NONE)
+        delete(f);
+      free.remove(f);
+    }
+    this.numbufs = numbufs;
+    history = history.resized(numbufs);
+
+  } // public synchronized void resize(int numbufs)
+
+  /**
+   * Notifies the replacer of a new page.
+   */
+  public synchronized void newPage(FrameDesc fdesc) {
+
+    int f = fdesc.index;
+    if (f >= numbufs)
+      return; // being drained
+    if (pids[f] != INVALID_PAGEID)
+      history.add(pids[f], last(f));
+    free.remove(f);
+
+    // a page seen before keeps its last reference, which the coming pin makes
+    // its second most recent one
+    long seen = history.remove(fdesc.getPid());
+    pids[f] = fdesc.getPid();
+    times.set(2 * f, seen > 0 ? seen : 0);
+    times.set(2 * f + 1, 0);
+    if (pos[f] == NONE)
+      insert(f);
+    else
+      rekey(f);
+  }
+
+  /**
+   * Notifies the replacer of a free page.
+   */
+  public synchronized void freePage(FrameDesc fdesc) {
+    int f = fdesc.index;
+    if (f >= numbufs)
+      return;
+    if (pos[f] != NONE)
+      delete(f);
+    pids[f] = INVALID_PAGEID;
+    if (free.listOf(f) == FrameLists.NIL)
+      free.addLast(0, f);
+  }
+
+  /**
+   * Notifies the replacer that a victim was not used; a frame without a page
+   * was taken off the free list when it was picked, and goes back on it.
+   */
+  public synchronized void unusedVictim(FrameDesc fdesc) {
+    int f = fdesc.index;
+    if (f < numbufs && pos[f] == NONE && free.listOf(f) == FrameLists.NIL)
+      free.addLast(0, f);
+  }
+
+  /**
+   * Notifies the replacer of a pined page.
+   */
+  public void pinPage(FrameDesc fdesc) {
+    AtomicLongArray t = times;
+    int f = fdesc.index;
+    if (2 * f >= t.length())
+      return; // a frame the policy no longer tracks
+    t.set(2 * f + 1, t.getAndSet(2 * f, System.nanoTime() - epoch));
+  }
+
+  /**
+   * Notifies the replacer of an optimistic read, which counts as a reference.
+   */
+  public void readPage(FrameDesc fdesc) {
+    pinPage(fdesc);
+  }
+
+  /**
+   * Notifies the replacer of an unpinned page.
+   */
+  public void unpinPage(FrameDesc fdesc) {
+    // the reference was recorded when the page was pinned
+  }
+
+  /**
+   * Selects the best frame to use for pinning a new page.
+   * 
+   * @return victim frame number, or -1 if none available
+   */
+  public synchronized int pickVictim() {
+
+    int victim = claimFirst(free, 0);
+    if (victim != -1) {
+      free.remove(victim);
+      return victim;
+    }
+
+    // pinned frames are taken off the top while searching, and put back after
+    int skipped = 0;
+    int[] aside = null;
+    int rekeyed = 0; // bounded, since pins keep changing the times while we look
+    while (size > 0) {
+      int f = heap[0];
+      swept.increment();
+      if ((keyLast[f] != last(f) || keyPenultimate[f] != penultimate(f)) && rekeyed++ < 2 * size) {
+        rekey(f); // referenced since it was keyed
+        continue;
+      }
+      if (frametab[f].tryClaim()) {
+        victim = f;
+        break;
+      }
+      if (aside == null)
+        aside = new int[size];
+      aside[skipped++] = f;
+      delete(f);
+    }
+    for (int i = 0; i < skipped; i++)
+      insert(aside[i]);
+    return victim;
+
+  } // public int pickVictim()
+
+  /**
+   * Gets the most recent reference time of a frame's page.
+   */
+  private long last(int f) {
+    return times.get(2 * f);
+  }
+
+  /**
+   * Gets the second most recent reference time of a frame's page.
+   */
+  private long penultimate(int f) {
+    return times.get(2 * f + 1);
+  }
+
+  /**
+   * Tells whether frame a's page should be evicted before frame b's.
+   */
+  private boolean before(int a, int b) {
+    if (keyPenultimate[a] != keyPenultimate[b])
+      return keyPenultimate[a] < keyPenultimate[b];
+    return keyLast[a] < keyLast[b];
+  }
+
+  /**
+   * Adds a frame to the heap.
+   */
+  private void insert(int f) {
+    keyLast[f] = last(f);
+    keyPenultimate[f] = penultimate(f);
+    heap[size] = f;
+    pos[f] = size++;
+    siftUp(pos[f]);
+  }
+
+  /**
+   * Takes a frame out of the heap.
+   */
+  private void delete(int f) {
+    int i = pos[f];
+    int moved = heap[--size];
+    pos[f] = NONE;
+    if (i == size)
+      return;
+    heap[i] = moved;
+    pos[moved] = i;
+    siftUp(i);
+    siftDown(pos[moved]);
+  }
+
+  /**
+   * Brings a frame's key up to date, and moves it to its place.
+   */
+  private void rekey(int f) {
+    keyLast[f] = last(f);
+    keyPenultimate[f] = penultimate(f);
+    siftUp(pos[f]);
+    siftDown(pos[f]);
+  }
+
+  private void siftUp(int i) {
+    int f = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) / 2;
+      if (!before(f, heap[parent]))
+        break;
+      heap[i] = heap[parent];
+      pos[heap[i]] = i;
+      i = parent;
+    }
+    heap[i] = f;
+    pos[f] = i;
+  }
+
+  private void siftDown(int i) {
+    int f = heap[i];
+    for (int child; (child = 2 * i + 1) < size; i = child) {
+      if (child + 1 < size && before(heap[child + 1], heap[child]))
+        child++;
+      if (!before(heap[child], f))
+        break;
+      heap[i] = heap[child];
+      pos[heap[i]] = i;
+    }
+    heap[i] = f;
+    pos[f] = i;
+  }
+
+} // class LRUK extends Replacer
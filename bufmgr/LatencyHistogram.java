@@ -0,0 +1,39 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with one bucket per power of two:
+ * bucket i counts the latencies from 2^(i-1) up to 2^i - 1 (bucket 0 those of
+ * zero). Recording is one atomic increment, so it can stay on in production.
+ */
+class LatencyHistogram {
+
+  /** Number of buckets; enough for any non-negative long. */
+  public static final int BUCKETS = 64;
+
+  /** The count of each bucket. */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Records one latency.
+   */
+  public void record(long nanos) {
+    counts.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+  }
+
+  /**
+   * Adds the current counts to the given array, bucket by bucket.
+   */
+  public void addTo(long[] buckets) {
+    for (int i = 0; i < BUCKETS; i++)
+      buckets[i] += counts.get(i);
+  }
+
+} // class LatencyHistogram
@@ -0,0 +1,225 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps the pages in memory, and allocates page numbers itself, so that the
+ * buffer manager can be tested and benchmarked without a Minibase instance or
+ * file system noise. It can simulate a device: every request waits for the
+ * configured latency, transfers share the configured bandwidth one after the
+ * other, and at most the configured number of requests are in service at once
+ * (the queue depth); the others wait their turn. Pages that were never
+ * written read as zeros.
+ */
+public class MemoryDisk extends DiskBackend {
+
+  /** The pages, allocated when first written. */
+  private final AtomicReferenceArray<byte[]> pages;
+
+  /** The next page number to allocate. */
+  private final AtomicInteger next = new AtomicInteger();
+
+  /** Nanoseconds a read takes, besides its transfer. */
+  private final long readLatency;
+
+  /** Nanoseconds a write takes, besides its transfer. */
+  private final long writeLatency;
+
+  /** Nanoseconds to transfer one page, or 0 for unlimited bandwidth. */
+  private final long transferTime;
+
+  /** Requests in service, or null for an unlimited queue depth. */
+  private final Semaphore queue;
+
+  /** When the device is done with the transfers handed to it so far. */
+  private final AtomicLong busyUntil = new AtomicLong();
+
+  /** Number of pages read and written. */
+  private final LongAdder reads = new LongAdder();
+  private final LongAdder writes = new LongAdder();
+
+  /** Number of read and write requests, a run of pages counting as one. */
+  private final LongAdder readRequests = new LongAdder();
+  private final LongAdder writeRequests = new LongAdder();
+
+  /**
+   * Constructs a disk of the given number of pages that takes no time.
+   */
+  public MemoryDisk(int numPages) {
+    this(numPages, 0, 0, 0, 0);
+  }
+
+  /**
+   * Constructs a disk of the given number of pages that simulates a device.
+   * 
+   * @param numPages number of pages the disk holds
+   * @param readLatency microseconds a read takes, besides its transfer
+   * @param writeLatency microseconds a write takes, besides its transfer
+   * @param bandwidth megabytes per second, or 0 for unlimited
+   * @param queueDepth number of requests in service at once, or 0 for unlimited
+   */
+  public MemoryDisk(int numPages, long readLatency, long writeLatency, long bandwidth, int queueDepth) {
+    pages = new AtomicReferenceArray<byte[]>(numPages);
+    this.readLatency = readLatency * 1000;
+    this.writeLatency = writeLatency * 1000;
+    transferTime = bandwidth > 0 ? PAGE_SIZE * 1000000000L / (bandwidth << 20) : 0;
+    queue = queueDepth > 0 ? new Semaphore(queueDepth, true) : null;
+  }
+
+  public void readPage(PageId pageno, Page page) {
+    read(pageno.pid, ByteBuffer.wrap(page.getData()));
+  }
+
+  public void writePage(PageId pageno, Page page) {
+    write(pageno.pid, ByteBuffer.wrap(page.getData()));
+  }
+
+  public void read(int pid, ByteBuffer dst) {
+    check(pid, 1);
+    service(readLatency, 1);
+    byte[] data = pages.get(pid);
+    if (data != null)
+      dst.put(dst.position(), data, 0, PAGE_SIZE);
+    else
+      dst.put(dst.position(), new byte[PAGE_SIZE], 0, PAGE_SIZE);
+    reads.increment();
+    readRequests.increment();
+  }
+
+  /**
+   * Reads a run of consecutive pages as one request, which pays the latency
+   * once.
+   */
+  public void readRun(int firstPid, ByteBuffer[] dsts, int count) {
+    check(firstPid, count);
+    service(readLatency, count);
+    for (int i = 0; i < count; i++) {
+      byte[] data = pages.get(firstPid + i);
+      dsts[i].put(dsts[i].position(), data != null ? data : new byte[PAGE_SIZE], 0, PAGE_SIZE);
+    }
+    reads.add(count);
+    readRequests.increment();
+  }
+
+  public void write(int pid, ByteBuffer src) {
+    check(pid, 1);
+    service(writeLatency, 1);
+    store(pid, src);
+    writes.increment();
+    writeRequests.increment();
+  }
+
+  /**
+   * Writes a run of consecutive pages as one request, which pays the latency
+   * once.
+   */
+  public void writeRun(int firstPid, ByteBuffer[] srcs, int count) {
+    check(firstPid, count);
+    service(writeLatency, count);
+    for (int i = 0; i < count; i++)
+      store(firstPid + i, srcs[i]);
+    writes.add(count);
+    writeRequests.increment();
+  }
+
+  public PageId allocatePage(int runSize) {
+    int first = next.getAndAdd(runSize);
+    if (first + runSize > pages.length() || first < 0)
+      throw new IllegalStateException("the disk is full");
+    return new PageId(first);
+  }
+
+  public void deallocatePage(PageId pageno) {
+    check(pageno.pid, 1);
+    pages.set(pageno.pid, null); // page numbers are not reused, but the memory is
+  }
+
+  /**
+   * Gets the number of pages read so far.
+   */
+  public long getReadCount() {
+    return reads.sum();
+  }
+
+  /**
+   * Gets the number of pages written so far.
+   */
+  public long getWriteCount() {
+    return writes.sum();
+  }
+
+  /**
+   * Gets the number of read requests so far; a run of pages is one request.
+   */
+  public long getReadRequestCount() {
+    return readRequests.sum();
+  }
+
+  /**
+   * Gets the number of write requests so far; a run of pages is one request.
+   */
+  public long getWriteRequestCount() {
+    return writeRequests.sum();
+  }
+
+  /**
+   * Copies a page into the store.
+   */
+  private void store(int pid, ByteBuffer src) {
+    byte[] data = new byte[PAGE_SIZE]; // a fresh copy, so readers never see half a page
+    src.get(src.position(), data, 0, PAGE_SIZE);
+    pages.set(pid, data);
+  }
+
+  /**
+   * Waits until the device has served a request for the given number of pages.
+   */
+  private void service(long latency, int count) {
+    if (latency == 0 && transferTime == 0)
+      return;
+    if (queue != null)
+      queue.acquireUninterruptibly();
+    try {
+      long done = System.nanoTime() + latency;
+      if (transferTime > 0) {
+        // transfers do not overlap; each starts when the device is free
+        long busy, start;
+        do {
+          busy = busyUntil.get();
+          start = Math.max(busy, done);
+        } while (!busyUntil.compareAndSet(busy, start + transferTime * count));
+        done = start + transferTime * count;
+      }
+      for (long left; (left = done - System.nanoTime()) > 0; )
+        LockSupport.parkNanos(left);
+    } finally {
+      if (queue != null)
+        queue.release();
+    }
+  }
+
+  /**
+   * Checks that the given pages are on the disk.
+   * 
+   * @throws IllegalArgumentException if they are not
+   */
+  private void check(int pid, int count) {
+    if (pid < 0 || pid + count > pages.length())
+      throw new IllegalArgumentException("invalid page number: " + pid);
+  }
+
+} // public class MemoryDisk extends DiskBackend
@@ -0,0 +1,44 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.Minibase;
+import global.Page;
+import global.PageId;
+import java.nio.ByteBuffer;
+
+/**
+ * Stores the pages through the Minibase disk manager. The disk manager is not
+ * thread-safe, so calls to it are serialized.
+ */
+class MinibaseDisk extends DiskBackend {
+
+  public void readPage(PageId pageno, Page page) {
+    synchronized (Minibase.DiskManager) {
+      Minibase.DiskManager.read_page(pageno, page);
+    }
+  }
+
+  public void writePage(PageId pageno, Page page) {
+    synchronized (Minibase.DiskManager) {
+      Minibase.DiskManager.write_page(pageno, page);
+    }
+  }
+
+  public void readRun(int firstPid, ByteBuffer[] dsts, int count) {
+    synchronized (Minibase.DiskManager) { // one trip to the disk manager for the run
+      super.readRun(firstPid, dsts, count);
+    }
+  }
+
+  public void writeRun(int firstPid, ByteBuffer[] srcs, int count) {
+    synchronized (Minibase.DiskManager) { // one trip to the disk manager for the run
+      super.writeRun(firstPid, srcs, count);
+    }
+  }
+
+} // class MinibaseDisk extends DiskBackend
@@ -0,0 +1,111 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maps current page numbers to frame numbers. The table is split into
+ * independently locked stripes of primitive hash maps, so lookups of different
+ * pages never contend on one lock. Lookups are optimistic: they only read the
+ * stripe's lock word, and fall back to a read lock if a writer got in the way.
+ */
+
+class PageTable {
+
+  /** Returned by get when the page is not mapped. */
+  public static final int NOT_FOUND = IntMap.NOT_FOUND;
+
+  /** The page maps, one per stripe. */
+  private final IntMap[] maps;
+
+  /** Guards the page map of the same stripe. */
+  private final StampedLock[] locks;
+
+  /** Selects a stripe from a page number hash. */
+  private final int mask;
+
+  /**
+   * Constructs a page table for a buffer pool of the given size.
+   */
+  public PageTable(int numbufs) {
+
+    // a few stripes per core keeps the chance of two threads meeting low
+    int stripes = Integer.highestOneBit(Math.max(1, 4 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+    mask = stripes - 1;
+    maps = new IntMap[stripes];
+    locks = new StampedLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      maps[i] = new IntMap(numbufs / stripes + 1);
+      locks[i] = new StampedLock();
+    }
+
+  } // public PageTable(int numbufs)
+
+  /**
+   * Gets the frame holding the given page, or NOT_FOUND if it is not mapped.
+   */
+  public int get(int pid) {
+    if (pid < 0)
+      return NOT_FOUND; // never mapped; the maps use negative keys for empty slots
+    int s = stripe(pid);
+    StampedLock lock = locks[s];
+    long stamp = lock.tryOptimisticRead();
+    int frame = maps[s].get(pid);
+    if (lock.validate(stamp))
+      return frame;
+
+    stamp = lock.readLock(); // a writer got in the way
+    try {
+      return maps[s].get(pid);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Maps the given page to a frame, unless it is already mapped.
+   *
+   * @return the frame the page was already mapped to, or NOT_FOUND if it was added
+   * @throws IllegalArgumentException if the page number is negative
+   */
+  public int putIfAbsent(int pid, int frame) {
+    if (pid < 0)
+      throw new IllegalArgumentException("invalid page number: " + pid);
+    int s = stripe(pid);
+    long stamp = locks[s].writeLock();
+    try {
+      return maps[s].putIfAbsent(pid, frame);
+    } finally {
+      locks[s].unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the given page, if it is still mapped to the given frame.
+   */
+  public void remove(int pid, int frame) {
+    if (pid < 0)
+      return;
+    int s = stripe(pid);
+    long stamp = locks[s].writeLock();
+    try {
+      maps[s].remove(pid, frame);
+    } finally {
+      locks[s].unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Spreads sequential page numbers over the stripes.
+   */
+  private int stripe(int pid) {
+    int h = pid * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+} // class PageTable
@@ -0,0 +1,135 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Striped pin counts of a hot frame. Threads pin and unpin the frame on
+ * counters of their own, each on its own cache line, so pinning the same page
+ * from many cores does not bounce one word between them. The frame keeps a
+ * single pin in its own pin count on behalf of the stripes, so it looks
+ * pinned to everyone else; its real pin count is that pin count, less one,
+ * plus the sum of the stripes. A stripe may go negative when a thread unpins
+ * on a different stripe than it pinned, or drops a pin taken before the
+ * frame got hot; only the sum counts.
+ *
+ * <p>To claim the frame, the stripes are closed first: a pinner increments its
+ * stripe and then checks they are still open, and backs out if not, so once
+ * they are closed the sum can only go down. See {@link FrameTracker#tryClaim}.
+ */
+
+class PinStripes {
+
+  /** The stripes are open for pins. */
+  static final int OPEN = 0;
+
+  /** The stripes are being summed up, by a thread claiming the frame. */
+  static final int CLOSING = 1;
+
+  /** The frame was claimed, and no longer uses these stripes. */
+  static final int CLOSED = 2;
+
+  /** Ints between two stripes, so that each has a cache line of its own. */
+  private static final int PAD = 16;
+
+  /** Number of stripes, a power of two; at most 32, or 2KB per frame. */
+  private static final int STRIPES = Math.min(32, Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+  /** The stripes, PAD ints apart. */
+  private final AtomicIntegerArray counts = new AtomicIntegerArray(STRIPES * PAD);
+
+  /** OPEN, CLOSING or CLOSED. */
+  private final AtomicInteger state = new AtomicInteger(OPEN);
+
+  /** Set by pins, and cleared by the replacer as it sweeps past; second chance for hot frames. */
+  private volatile boolean referenced = true;
+
+  /** The frame these stripes count the pins of. */
+  final int frame;
+
+  /**
+   * Constructs the stripes of a frame getting hot, with one pin on the
+   * caller's stripe.
+   */
+  PinStripes(int frame) {
+    this.frame = frame;
+    counts.set(stripe(), 1);
+  }
+
+  /**
+   * Adds a pin on the caller's stripe, unless the stripes are closing.
+   *
+   * @return OPEN if the frame was pinned, or the state that kept it from being pinned
+   */
+  public int pin() {
+    int i = stripe();
+    counts.incrementAndGet(i);
+    int s = state.get(); // after the increment, so a claim that closed us first sees it
+    if (s != OPEN) {
+      counts.decrementAndGet(i);
+      return s;
+    }
+    if (!referenced)
+      referenced = true; // only written once per sweep
+    return OPEN;
+  }
+
+  /**
+   * Drops a pin from the caller's stripe.
+   */
+  public void unpin() {
+    counts.decrementAndGet(stripe());
+  }
+
+  /**
+   * Gets the sum of the stripes, i.e. the pins of the frame that are not in
+   * its own pin count.
+   */
+  public int sum() {
+    int sum = 0;
+    for (int i = 0; i < STRIPES * PAD; i += PAD)
+      sum += counts.get(i);
+    return sum;
+  }
+
+  /**
+   * Closes the stripes for new pins, unless someone else is closing them.
+   */
+  public boolean close() {
+    return state.compareAndSet(OPEN, CLOSING);
+  }
+
+  /**
+   * Reopens the stripes after a failed claim, or retires them after a
+   * successful one.
+   */
+  public void finishClose(boolean claimed) {
+    state.set(claimed ? CLOSED : OPEN);
+  }
+
+  /**
+   * Tells whether the frame was pinned since the last call, and clears the
+   * flag if so.
+   */
+  public boolean referenced() {
+    if (!referenced)
+      return false;
+    referenced = false;
+    return true;
+  }
+
+  /**
+   * Gets the index of the calling thread's stripe.
+   */
+  private static int stripe() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PAD;
+  }
+
+} // class PinStripes
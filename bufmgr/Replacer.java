@@ -7,31 +7,54 @@
 package bufmgr;
 
 import global.GlobalConst;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Base class for buffer pool replacement policies.
+ * Base class for buffer pool replacement policies. The buffer manager calls
+ * the notifications without holding any lock, so policies must tolerate
+ * concurrent calls; a frame's pin count is authoritative over its state.
  */
 abstract class Replacer implements GlobalConst {
 
+  /** The buffer manager using the policy. */
+  protected final BufMgr bufmgr;
+
   /** Reference back to the buffer manager's frame table. */
   protected FrameDesc[] frametab;
 
+  /** Number of frames looked at while picking victims, for the statistics. */
+  protected final LongAdder swept = new LongAdder();
+
+  /** The metadata of the frames, indexed by frame number. */
+  protected final FrameTracker meta;
+
+  /**
+   * States of the frames of the list based policies: not referenced since the
+   * policy last looked at them, referenced since, or just brought in and not
+   * yet pinned for the first time.
+   */
+  protected static final int IDLE = 0, HIT = 1, FRESH = 2;
+
   // --------------------------------------------------------------------------
 
   /**
    * Constructs the replacer, given the buffer manager.
    */
   protected Replacer(BufMgr bufmgr) {
+    this.bufmgr = bufmgr;
     this.frametab = bufmgr.frametab;
+    this.meta = bufmgr.tracker;
   }
 
   /**
-   * Notifies the replacer of a new page.
+   * Notifies the replacer of a new page, i.e. that a frame now holds another
+   * page. The frame's previous page, if any, was evicted. Called before the
+   * frame is first pinned; that pin is the new page's first reference.
    */
   public abstract void newPage(FrameDesc fdesc);
 
   /**
-   * Notifies the replacer of a free page.
+   * Notifies the replacer of a free page, i.e. that a frame holds no page.
    */
   public abstract void freePage(FrameDesc fdesc);
 
@@ -46,10 +69,137 @@ abstract class Replacer implements GlobalConst {
   public abstract void unpinPage(FrameDesc fdesc);
 
   /**
-   * Selects the best frame to use for pinning a new page.
+   * Notifies the replacer of an optimistic read of an unpinned page. Readers
+   * do not take a pin, so policies should not write anything here unless they
+   * have to; by default such reads are not counted as references.
+   */
+  public void readPage(FrameDesc fdesc) {
+  }
+
+  /**
+   * Selects the best frame to use for pinning a new page. The frame is claimed
+   * (see {@link FrameDesc#tryClaim}) before it is returned, so that no other
+   * thread can pin it while the caller replaces its page.
    * 
    * @return victim frame number, or -1 if none available
    */
   public abstract int pickVictim();
 
+  /**
+   * Notifies the replacer that a victim it picked was not used after all,
+   * e.g. because a batch of pins failed; the frame is still claimed, and
+   * keeps its page, if it had one. Policies that take victims off their lists
+   * when they pick them put them back here; by default nothing is done.
+   */
+  public void unusedVictim(FrameDesc fdesc) {
+  }
+
+  /**
+   * Selects victims for several new pages at once. Each frame is claimed, as
+   * with pickVictim; by default they are picked one after the other.
+   * 
+   * @param frames receives the victim frame numbers
+   * @param count number of victims wanted
+   * @return number of victims picked, fewer than wanted if frames ran out
+   */
+  public int pickVictims(int[] frames, int count) {
+    int n = 0;
+    for (int f; n < count && (f = pickVictim()) != -1; )
+      frames[n++] = f;
+    return n;
+  }
+
+  /**
+   * Notifies the replacer that the pool changes size. When it grows, this is
+   * called once the new frames are in the frame table; they are empty, and so
+   * may be frames past the old size that the policy stopped tracking earlier.
+   * When it shrinks, this is called before the frames past the new size are
+   * drained; the policy must stop picking them, and ignore notifications
+   * about them from then on.
+   */
+  public abstract void resize(int numbufs);
+
+  /**
+   * Records a reference to a frame of a list based policy, without a lock:
+   * it only sets the frame's state, which the policy looks at when the frame
+   * comes up for replacement. The state is only written if it changes, so
+   * hits on hot frames write nothing. The pin that brings a page in is not a
+   * reference of its own.
+   */
+  protected void hit(FrameDesc fdesc) {
+    int state = meta.getState(fdesc.index);
+    if (state == IDLE)
+      meta.compareAndSetState(fdesc.index, IDLE, HIT);
+    else if (state == FRESH)
+      meta.compareAndSetState(fdesc.index, FRESH, IDLE);
+  }
+
+  /**
+   * Claims the least recently used frame on the given list that is not
+   * pinned. Hits only mark the frames (see {@link #hit}), so frames marked
+   * since they were last looked at are moved to the end of the given list
+   * instead, as if they had been moved there when they were hit; each frame
+   * gets at most two looks, so a list of hot frames still yields one.
+   *
+   * @param moveTo the list referenced frames move to
+   * @return the claimed frame number, or -1 if all of them are pinned
+   */
+  protected int claimLeastRecent(FrameLists lists, int list, int moveTo) {
+    int n = 0;
+    try {
+      int left = 2 * lists.size(list);
+      for (int f = lists.first(list); f != FrameLists.NIL && left > 0; left--) {
+        int next = lists.next(f);
+        n++;
+        if (meta.getState(f) == HIT && meta.compareAndSetState(f, HIT, IDLE)) {
+          lists.addLast(moveTo, f);
+          if (next == FrameLists.NIL && moveTo == list)
+            next = f; // it is the only one left to look at
+        }
+        else if (frametab[f].tryClaim())
+          return f;
+        f = next;
+      }
+      return -1;
+    } finally {
+      swept.add(n);
+    }
+  }
+
+  /**
+   * Claims the first frame on the given list that is not pinned.
+   * 
+   * @return the claimed frame number, or -1 if all of them are pinned
+   */
+  protected int claimFirst(FrameLists lists, int list) {
+    int n = 0;
+    try {
+      for (int f = lists.first(list); f != FrameLists.NIL; f = lists.next(f)) {
+        n++;
+        if (frametab[f].tryClaim())
+          return f;
+      }
+      return -1;
+    } finally {
+      swept.add(n);
+    }
+  }
+
+  /**
+   * Tells whether the policy can pick frames with striped pins as victims.
+   * Unpinning such a frame never reports it unpinned, so the policy has to
+   * find out by trying to claim it; see {@link FrameTracker#tryClaim}.
+   */
+  public boolean sweepsStripedPins() {
+    return false;
+  }
+
+  /**
+   * Gets the frame the policy will look at first when it next picks a victim;
+   * the background writer cleans the frames from there on.
+   */
+  public int nextVictimHint() {
+    return 0;
+  }
+
 } // abstract class Replacer implements GlobalConst
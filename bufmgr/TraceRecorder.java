@@ -0,0 +1,196 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the calls made to a buffer manager in a compact binary trace, for
+ * {@link TraceSimulator}. A trace starts with the magic bytes "BMTRACE1",
+ * followed by one event per call: a byte with the kind of event, then the
+ * page number as a zigzag varint of its difference to the previous event's,
+ * then for NEW the run size as a varint. Most events take two or three bytes.
+ * Calls from several threads are numbered in the order they take a sequence
+ * number, which is close to the order they happened in. Each thread buffers
+ * its own events, so recording takes no lock; the buffers are merged in that
+ * order when the trace is closed, which keeps the whole trace in memory until
+ * then, at 16 bytes an event.
+ */
+class TraceRecorder {
+
+  /** Magic bytes at the start of a trace. */
+  static final byte[] MAGIC = {'B', 'M', 'T', 'R', 'A', 'C', 'E', '1'};
+
+  /** Kinds of events. */
+  static final int PIN = 0;
+  static final int UNPIN = 1;
+  static final int UNPIN_DIRTY = 2;
+  static final int NEW = 3;
+  static final int FREE = 4;
+
+  /** Events in a chunk of a thread's buffer. */
+  private static final int CHUNK = 4096;
+
+  /** The trace file. */
+  private final FileChannel channel;
+
+  /** Events being written to the file. */
+  private final ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+
+  /** Page number of the previous event written. */
+  private int lastPid;
+
+  /** Sequence number of the next event. */
+  private final AtomicLong nextSeq = new AtomicLong();
+
+  /** Every chunk of every thread's buffer, full or not. */
+  private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<Chunk>();
+
+  /** The chunk each thread is filling. */
+  private final ThreadLocal<Chunk> current = new ThreadLocal<Chunk>();
+
+  /** True once the recorder has been closed; later events are dropped. */
+  private volatile boolean closed;
+
+  /**
+   * Events of one thread, in the order of their sequence numbers.
+   */
+  private static final class Chunk {
+
+    final long[] seqs = new long[CHUNK];
+    final int[] pids = new int[CHUNK];
+    final int[] args = new int[CHUNK]; // the kind of event in the low 3 bits, the run size above
+
+    /** Number of events in the chunk; written after each event. */
+    volatile int size;
+
+  } // private static final class Chunk
+
+  /**
+   * Starts a trace in the given file, replacing it if it exists.
+   * 
+   * @throws UncheckedIOException if the file cannot be created
+   */
+  public TraceRecorder(String path) {
+    try {
+      channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot create " + path, exc);
+    }
+  }
+
+  /**
+   * Records an event.
+   * 
+   * @param kind kind of event
+   * @param pid page number of the event
+   * @param runSize run size of a NEW event
+   */
+  public void record(int kind, int pid, int runSize) {
+    if (closed)
+      return;
+    Chunk chunk = current.get();
+    if (chunk == null || chunk.size == CHUNK) {
+      chunk = new Chunk();
+      current.set(chunk);
+      chunks.add(chunk);
+    }
+    int i = chunk.size;
+    chunk.seqs[i] = nextSeq.getAndIncrement();
+    chunk.pids[i] = pid;
+    chunk.args[i] = kind | (runSize << 3);
+    chunk.size = i + 1;
+  }
+
+  /**
+   * Merges the threads' events in the order of their sequence numbers, writes
+   * them out, and closes the file. Events recorded while it runs may be lost.
+   */
+  public synchronized void close() {
+    if (closed)
+      return;
+    closed = true;
+    try {
+      int count = (int) Math.min(nextSeq.get(), Integer.MAX_VALUE);
+      int[] pids = new int[count];
+      int[] args = new int[count];
+      java.util.Arrays.fill(args, -1); // numbered, but not stored yet
+      for (Chunk chunk : chunks) {
+        for (int i = 0, n = chunk.size; i < n; i++) {
+          long seq = chunk.seqs[i];
+          if (seq < count) {
+            pids[(int) seq] = chunk.pids[i];
+            args[(int) seq] = chunk.args[i];
+          }
+        }
+      }
+      chunks.clear();
+      buf.put(MAGIC);
+      for (int i = 0; i < count; i++) {
+        if (args[i] != -1)
+          put(args[i] & 7, pids[i], args[i] >>> 3);
+      }
+      flush();
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException exc) {
+        throw new UncheckedIOException(exc);
+      }
+    }
+  }
+
+  /**
+   * Adds an event to the events being written, writing them first if there is
+   * no room left.
+   */
+  private void put(int kind, int pid, int runSize) {
+    if (buf.remaining() < 16)
+      flush();
+    buf.put((byte) kind);
+    int delta = pid - lastPid;
+    putVarint((delta << 1) ^ (delta >> 31));
+    lastPid = pid;
+    if (kind == NEW)
+      putVarint(runSize);
+  }
+
+  /**
+   * Writes the events in the buffer to the file.
+   */
+  private void flush() {
+    buf.flip();
+    try {
+      while (buf.hasRemaining())
+        channel.write(buf);
+    } catch (IOException exc) {
+      throw new UncheckedIOException("cannot write the trace", exc);
+    } finally {
+      buf.clear();
+    }
+  }
+
+  /**
+   * Adds an unsigned varint: seven bits a byte, low bits first.
+   */
+  private void putVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      buf.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buf.put((byte) value);
+  }
+
+} // class TraceRecorder
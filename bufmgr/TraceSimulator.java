@@ -0,0 +1,264 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+import global.GlobalConst;
+import global.Page;
+import global.PageId;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replays a trace recorded by a buffer manager (see {@link
+ * BufMgr#startTrace}) against a pool of another size or replacement policy,
+ * and reports its hit ratio. The replay runs the real buffer manager, one
+ * call at a time, on an in-memory disk without latency, so the policies
+ * behave exactly as they would in production. Run it as
+ * 
+ * <pre>
+ * java bufmgr.TraceSimulator trace [sizes [policies]]
+ * </pre>
+ * 
+ * with comma-separated pool sizes and policy names, to print a table of hit
+ * ratio against pool size for each policy.
+ */
+public class TraceSimulator implements GlobalConst {
+
+  /** The trace to replay. */
+  private final String path;
+
+  /** Number of pages the disk needs: one past the highest page number in the trace. */
+  private final int numPages;
+
+  /** Number of events in the trace. */
+  private final long numEvents;
+
+  /**
+   * Prepares to replay the given trace, reading it once to size the disk.
+   * 
+   * @throws UncheckedIOException if the trace cannot be read
+   * @throws IllegalArgumentException if the file is not a trace
+   */
+  public TraceSimulator(String path) {
+    this.path = path;
+    int maxPid = 0;
+    long events = 0;
+    Reader reader = new Reader(path);
+    try {
+      while (reader.next()) {
+        int last = reader.kind == TraceRecorder.NEW ? reader.pid + reader.runSize - 1 : reader.pid;
+        maxPid = Math.max(maxPid, last);
+        events++;
+      }
+    } finally {
+      reader.close();
+    }
+    numPages = maxPid + 1;
+    numEvents = events;
+  }
+
+  /**
+   * Gets the number of events in the trace.
+   */
+  public long getEventCount() {
+    return numEvents;
+  }
+
+  /**
+   * Replays the trace against a pool of the given size and policy.
+   * 
+   * @param numbufs number of buffers in the pool
+   * @param replacer name of the replacement policy (see {@link BufMgrConfig#replacer})
+   * @return the statistics of the pool at the end of the trace
+   */
+  public BufMgrStats simulate(int numbufs, String replacer) {
+
+    BufMgrConfig config = new BufMgrConfig(numbufs);
+    config.replacer = replacer;
+    config.diskBackend = new MemoryDisk(numPages);
+    config.readAhead = 0;
+    config.bgWriterThreads = 0;
+    config.partitions = 1;
+    config.pinWait = 0;
+    config.statsSample = 0;
+    config.jmx = false;
+    config.traceFile = null;
+    BufMgr bufmgr = new BufMgr(config);
+
+    // pins that found the pool full of pinned pages are skipped, and so are their unpins
+    Map<Integer, Integer> skipped = new HashMap<Integer, Integer>();
+    Page page = new Page();
+    PageId pageno = new PageId();
+    Reader reader = new Reader(path);
+    try {
+      while (reader.next()) {
+        pageno.pid = reader.pid;
+        switch (reader.kind) {
+          case TraceRecorder.PIN:
+            try {
+              bufmgr.pinPage(pageno, page, PIN_DISKIO);
+            } catch (IllegalStateException exc) {
+              Integer pins = skipped.get(reader.pid);
+              skipped.put(reader.pid, pins == null ? 1 : pins + 1);
+            }
+            break;
+          case TraceRecorder.UNPIN:
+          case TraceRecorder.UNPIN_DIRTY:
+            Integer count = skipped.get(reader.pid);
+            if (count != null) {
+              if (count == 1)
+                skipped.remove(reader.pid);
+              else
+                skipped.put(reader.pid, count - 1);
+              break;
+            }
+            try {
+              bufmgr.unpinPage(pageno, reader.kind == TraceRecorder.UNPIN_DIRTY);
+            } catch (IllegalArgumentException exc) {
+              // pinned before the trace started
+            }
+            break;
+          case TraceRecorder.FREE:
+            try {
+              bufmgr.freePage(pageno);
+            } catch (IllegalArgumentException exc) {
+              // still pinned in the trace, too
+            }
+            break;
+          default:
+            break; // a new page is pinned by the next event
+        }
+      }
+      return bufmgr.getStats();
+    } finally {
+      reader.close();
+      bufmgr.shutdown();
+    }
+  }
+
+  /**
+   * Prints the hit ratio of each policy against pool size.
+   */
+  public static void main(String[] args) {
+
+    if (args.length < 1) {
+      System.err.println("usage: java bufmgr.TraceSimulator trace [sizes [policies]]");
+      System.exit(2);
+    }
+    String[] sizes = (args.length > 1 ? args[1] : "64,128,256,512,1024,2048,4096").split(",");
+    String[] policies = (args.length > 2 ? args[2] : BufMgrConfig.CLOCK + "," + BufMgrConfig.COST_CLOCK
+        + "," + BufMgrConfig.LRUK + "," + BufMgrConfig.TWOQ + "," + BufMgrConfig.ARC).split(",");
+
+    TraceSimulator simulator = new TraceSimulator(args[0]);
+    System.out.printf("%d events on %d pages%n%8s", simulator.getEventCount(), simulator.numPages, "size");
+    for (String policy : policies)
+      System.out.printf("%10s", policy);
+    System.out.println();
+
+    long events = 0;
+    long start = System.nanoTime();
+    for (String size : sizes) {
+      System.out.printf("%8s", size);
+      for (String policy : policies) {
+        BufMgrStats stats = simulator.simulate(Integer.parseInt(size.trim()), policy.trim());
+        System.out.printf("%9.2f%%", 100 * stats.getHitRatio());
+        events += simulator.getEventCount();
+      }
+      System.out.println();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("replayed %.1f million events per second%n", events / seconds / 1e6);
+  }
+
+  /**
+   * Reads the events of a trace one by one.
+   */
+  private static class Reader {
+
+    /** The trace. */
+    private final DataInputStream in;
+
+    /** The current event. */
+    int kind;
+    int pid;
+    int runSize;
+
+    /**
+     * Opens the given trace, and checks its magic bytes.
+     */
+    Reader(String path) {
+      try {
+        InputStream file = new FileInputStream(path);
+        in = new DataInputStream(new BufferedInputStream(file, 64 * 1024));
+        byte[] magic = new byte[TraceRecorder.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, TraceRecorder.MAGIC)) {
+          in.close();
+          throw new IllegalArgumentException(path + " is not a buffer manager trace");
+        }
+      } catch (EOFException exc) {
+        throw new IllegalArgumentException(path + " is not a buffer manager trace");
+      } catch (IOException exc) {
+        throw new UncheckedIOException("cannot read " + path, exc);
+      }
+    }
+
+    /**
+     * Moves to the next event.
+     * 
+     * @return false at the end of the trace
+     */
+    boolean next() {
+      try {
+        int b = in.read();
+        if (b < 0)
+          return false;
+        kind = b;
+        int zigzag = readVarint();
+        pid += (zigzag >>> 1) ^ -(zigzag & 1);
+        if (kind == TraceRecorder.NEW)
+          runSize = readVarint();
+        return true;
+      } catch (EOFException exc) {
+        return false; // the last event was cut off
+      } catch (IOException exc) {
+        throw new UncheckedIOException(exc);
+      }
+    }
+
+    /**
+     * Reads an unsigned varint.
+     */
+    private int readVarint() throws IOException {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = in.readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0)
+          return value;
+      }
+    }
+
+    void close() {
+      try {
+        in.close();
+      } catch (IOException exc) {
+        // nothing to lose
+      }
+    }
+
+  } // private static class Reader
+
+} // public class TraceSimulator implements GlobalConst
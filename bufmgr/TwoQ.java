@@ -0,0 +1,149 @@
+/**
+ *  CSE 5331     : DBMS Models and implementation
+ *  Project 1    : Buffer Management with Clock Replacement Policy
+ *  Team Members : Anvit Bhimsain Joshi (1001163195) and Rajat Dhanuka (1001214104)
+ */
+
+package bufmgr;
+
+/**
+ * The "2Q" replacement policy (Johnson and Shasha). New pages enter a FIFO
+ * (A1in); only pages referenced again after falling out of it, while their
+ * number is still remembered (A1out), make it into the main LRU list (Am).
+ * One-time references such as scans therefore only ever churn A1in.
+ * 
+ * <p>Hits take no lock: they only mark the frame (see {@link Replacer#hit}),
+ * and a marked frame on Am is moved to the end of Am when it comes up for
+ * replacement, rather than when it is hit.
+ */
+class TwoQ extends Replacer {
+
+  /** The lists frames can be on. */
+  private static final int FREE = 0, A1IN = 1, AM = 2;
+
+  /** The frames on each list. */
+  private final FrameLists lists;
+
+  /** Page held by each frame, for A1out once it is evicted. */
+  private int[] pids;
+
+  /** Recently evicted pages from A1in. */
+  private GhostList a1out;
+
+  /** Target size of A1in. */
+  private int kin;
+
+  /** Number of frames the policy tracks. */
+  private int numbufs;
+
+  /**
+   * Constructs a 2Q replacer, with the sizes recommended in the paper: a
+   * quarter of the pool for A1in, and half of it for A1out.
+   */
+  public TwoQ(BufMgr bufmgr) {
+
+    super(bufmgr);
+    numbufs = bufmgr.getNumBuffers();
+    lists = new FrameLists(numbufs, 3);
+    pids = new int[numbufs];
+    a1out = new GhostList(numbufs / 2);
+    kin = Math.max(1, numbufs / 4);
+    for (int i = 0; i < numbufs; i++) {
+      pids[i] = INVALID_PAGEID;
+      lists.addLast(FREE, i);
+    }
+
+  } // public TwoQ(BufMgr bufmgr)
+
+  /**
+   * Notifies the replacer that the pool changes size.
+   */
+  public synchronized void resize(int numbufs) {
+
+    frametab = bufmgr.frametab;
+    lists.grow(numbufs);
+    if (numbufs > pids.length)
+      pids = java.util.Arrays.copyOf(pids, numbufs);
+    for (int f = this.numbufs; f < numbufs; f++) {
+      pids[f] = INVALID_PAGEID;
+      lists.addLast(FREE, f);
+    }
+    for (int f = numbufs; f < this.numbufs; f++)
+      lists.remove(f);
+    this.numbufs = numbufs;
+    a1out = a1out.resized(numbufs / 2);
+    kin = Math.max(1, numbufs / 4);
+
+  } // public synchronized void resize(int numbufs)
+
+  /**
+   * Notifies the replacer of a new page.
+   */
+  public synchronized void newPage(FrameDesc fdesc) {
+
+    int f = fdesc.index;
+    if (f >= numbufs)
+      return; // being drained
+    if (pids[f] != INVALID_PAGEID && lists.listOf(f) == A1IN)
+      a1out.add(pids[f], 0); // only A1in pages are remembered
+
+    pids[f] = fdesc.getPid();
+    meta.setState(f, FRESH);
+    if (a1out.remove(pids[f]) != -1)
+      lists.addLast(AM, f); // referenced again, so it is hot
+    else
+      lists.addLast(A1IN, f);
+  }
+
+  /**
+   * Notifies the replacer of a free page.
+   */
+  public synchronized void freePage(FrameDesc fdesc) {
+    if (fdesc.index >= numbufs)
+      return;
+    pids[fdesc.index] = INVALID_PAGEID;
+    meta.setState(fdesc.index, IDLE);
+    lists.addLast(FREE, fdesc.index);
+  }
+
+  /**
+   * Notifies the replacer of a pined page. Hits in A1in are marked too, but
+   * deliberately ignored, since they are likely correlated.
+   */
+  public void pinPage(FrameDesc fdesc) {
+    hit(fdesc);
+  }
+
+  /**
+   * Notifies the replacer of an optimistic read, which counts as a hit.
+   */
+  public void readPage(FrameDesc fdesc) {
+    hit(fdesc);
+  }
+
+  /**
+   * Notifies the replacer of an unpinned page.
+   */
+  public void unpinPage(FrameDesc fdesc) {
+    // the reference was recorded when the page was pinned
+  }
+
+  /**
+   * Selects the best frame to use for pinning a new page.
+   * 
+   * @return victim frame number, or -1 if none available
+   */
+  public synchronized int pickVictim() {
+
+    int victim = claimFirst(lists, FREE);
+    if (victim == -1 && lists.size(A1IN) > kin)
+      victim = claimFirst(lists, A1IN);
+    if (victim == -1)
+      victim = claimLeastRecent(lists, AM, AM);
+    if (victim == -1)
+      victim = claimFirst(lists, A1IN); // Am is all pinned
+    return victim;
+
+  } // public int pickVictim()
+
+} // class TwoQ extends Replacer
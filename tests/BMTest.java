@@ -4,6 +4,21 @@ import global.Convert;
 import global.Minibase;
 import global.Page;
 import global.PageId;
+import bufmgr.AccessStrategy;
+import bufmgr.BufMgr;
+import bufmgr.BufMgrConfig;
+import bufmgr.BufMgrStats;
+import bufmgr.FileChannelDisk;
+import bufmgr.MemoryDisk;
+import bufmgr.TraceSimulator;
+import java.lang.management.ManagementFactory;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import javax.management.ObjectName;
 
 /**
  * Test suite for the bufmgr layer.
@@ -34,6 +49,30 @@ class BMTest extends TestDriver {
     status &= bmt.test1();
     status &= bmt.test2();
     status &= bmt.test3();
+    status &= bmt.test4();
+    status &= bmt.test5();
+    status &= bmt.test6();
+    status &= bmt.test7();
+    status &= bmt.test8();
+    status &= bmt.test9();
+    status &= bmt.test10();
+    status &= bmt.test11();
+    status &= bmt.test12();
+    status &= bmt.test13();
+    status &= bmt.test14();
+    status &= bmt.test15();
+    status &= bmt.test16();
+    status &= bmt.test17();
+    status &= bmt.test18();
+    status &= bmt.test19();
+    status &= bmt.test20();
+    status &= bmt.test21();
+    status &= bmt.test22();
+    status &= bmt.test23();
+    status &= bmt.test24();
+    status &= bmt.test25();
+    status &= bmt.test26();
+    status &= bmt.test27();
 
     // display the final results
     System.out.println();
@@ -435,4 +474,2140 @@ class BMTest extends TestDriver {
 
   } // protected boolean test3 ()
 
+  /**
+   * 
+   */
+  protected boolean test4() {
+
+    System.out.print("\n  Test 4 pins and unpins pages from several "
+        + "threads at once\n");
+
+    // twice as many pages as frames, so that the threads also miss and
+    // replace pages under each other
+    final int numPages = 2 * Minibase.BufferManager.getNumBuffers();
+    final int numThreads = 8;
+    final int numPins = 5000;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    final PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write some new pages\n");
+    try {
+      firstPid = Minibase.BufferManager.newPage(pg, numPages);
+      Minibase.BufferManager.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        Minibase.BufferManager.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 99999, 0, pg.getData());
+        Minibase.BufferManager.unpinPage(pid, UNPIN_DIRTY);
+      }
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate " + numPages);
+      System.err.print(" new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Read them back from " + numThreads + " threads\n");
+    final boolean[] results = new boolean[numThreads];
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int me = t;
+      threads[t] = new Thread() {
+        public void run() {
+          Page tpg = new Page();
+          PageId tpid = new PageId();
+          boolean tstatus = PASS;
+          java.util.Random rand = new java.util.Random(me);
+          for (int i = 0; tstatus == PASS && i < numPins; i++) {
+            // half of the pins go to a few hot pages, so that threads share frames
+            tpid.pid = firstPid.pid + (i % 2 == 0 ? rand.nextInt(4) : rand.nextInt(numPages));
+            try {
+              Minibase.BufferManager.pinPage(tpid, tpg, PIN_DISKIO);
+              if (Convert.getIntValue(0, tpg.getData()) != tpid.pid + 99999) {
+                tstatus = FAIL;
+                System.err.print("*** Read wrong data back from page "
+                    + tpid.pid + "\n");
+              }
+              Minibase.BufferManager.unpinPage(tpid, UNPIN_CLEAN);
+            } catch (Exception e) {
+              tstatus = FAIL;
+              System.err.print("*** Could not pin page " + tpid.pid + "\n");
+              e.printStackTrace();
+            }
+          }
+          results[me] = tstatus;
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < numThreads; t++) {
+      try {
+        threads[t].join();
+      } catch (InterruptedException e) {
+        status = FAIL;
+      }
+      status &= results[t];
+    }
+
+    if (status == PASS && Minibase.BufferManager.getNumUnpinned() != Minibase.BufferManager.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks "
+          + (Minibase.BufferManager.getNumBuffers() - Minibase.BufferManager.getNumUnpinned())
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        Minibase.BufferManager.freePage(pid);
+      } catch (Exception e) {
+        status = FAIL;
+        System.err.print("*** Error freeing page " + pid.pid + "\n");
+        e.printStackTrace();
+      }
+    }
+
+    if (status == PASS)
+      System.out.print("  Test 4 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test4 ()
+
+  /**
+   * 
+   */
+  protected boolean test5() {
+
+    System.out.print("\n  Test 5 scans with a bulk read access strategy "
+        + "next to some hot pages\n");
+
+    int numHot = 10;
+    int numScan = 3 * Minibase.BufferManager.getNumBuffers();
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId hotPid, scanPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate some hot pages and a file to scan\n");
+    try {
+      hotPid = Minibase.BufferManager.newPage(pg, numHot);
+      Minibase.BufferManager.unpinPage(hotPid, UNPIN_CLEAN);
+      scanPid = Minibase.BufferManager.newPage(pg, numScan);
+      Minibase.BufferManager.unpinPage(scanPid, UNPIN_CLEAN);
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Use the hot pages, then scan the file\n");
+    AccessStrategy strategy = Minibase.BufferManager.newAccessStrategy(AccessStrategy.BULKREAD);
+    long evictions = 0;
+    try {
+      for (pid.pid = hotPid.pid; pid.pid < hotPid.pid + numHot; pid.pid = pid.pid + 1) {
+        Minibase.BufferManager.pinPage(pid, pg, PIN_DISKIO);
+        Minibase.BufferManager.unpinPage(pid, UNPIN_CLEAN);
+      }
+      for (pid.pid = scanPid.pid; pid.pid < scanPid.pid + numScan; pid.pid = pid.pid + 1) {
+        Minibase.BufferManager.pinPage(pid, pg, PIN_DISKIO, strategy);
+        Minibase.BufferManager.unpinPage(pid, UNPIN_CLEAN);
+      }
+
+      // the scan only replaced its own pages, so the hot ones are all still there
+      System.out.print("  - Use the hot pages again\n");
+      evictions = Minibase.BufferManager.getEvictionCount();
+      for (pid.pid = hotPid.pid; pid.pid < hotPid.pid + numHot; pid.pid = pid.pid + 1) {
+        Minibase.BufferManager.pinPage(pid, pg, PIN_DISKIO);
+        Minibase.BufferManager.unpinPage(pid, UNPIN_CLEAN);
+      }
+      evictions = Minibase.BufferManager.getEvictionCount() - evictions;
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not pin page " + pid.pid + "\n");
+      e.printStackTrace();
+    }
+
+    if (status == PASS && evictions != 0) {
+      status = FAIL;
+      System.err.print("*** The scan pushed " + evictions + " hot pages out "
+          + "of the buffer pool,\n    but it should have kept to its own frames.\n");
+    }
+
+    for (pid.pid = hotPid.pid; pid.pid < hotPid.pid + numHot; pid.pid = pid.pid + 1)
+      Minibase.BufferManager.freePage(pid);
+    for (pid.pid = scanPid.pid; pid.pid < scanPid.pid + numScan; pid.pid = pid.pid + 1)
+      Minibase.BufferManager.freePage(pid);
+
+    if (status == PASS)
+      System.out.print("  Test 5 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test5 ()
+
+  /**
+   * 
+   */
+  protected boolean test6() {
+
+    System.out.print("\n  Test 6 pins pages asynchronously, with all "
+        + "their reads in flight at once\n");
+
+    int numPages = 2 * Minibase.BufferManager.getNumBuffers();
+    int batch = Minibase.BufferManager.getNumBuffers() / 2;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write a bunch of new pages\n");
+    try {
+      firstPid = Minibase.BufferManager.newPage(pg, numPages);
+      Minibase.BufferManager.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        Minibase.BufferManager.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 6999999, 0, pg.getData());
+        Minibase.BufferManager.unpinPage(pid, UNPIN_DIRTY);
+      }
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Pin them again, a batch at a time, and check their contents\n");
+    for (int first = firstPid.pid; status == PASS && first < firstPid.pid + numPages; first += batch) {
+      int count = Math.min(batch, firstPid.pid + numPages - first);
+      List<CompletableFuture<Page>> pins = new ArrayList<CompletableFuture<Page>>();
+      for (int i = 0; i < count; i++)
+        pins.add(Minibase.BufferManager.pinPageAsync(new PageId(first + i)));
+      for (int i = 0; i < count; i++) {
+        pid.pid = first + i;
+        try {
+          int data = Convert.getIntValue(0, pins.get(i).join().getData());
+          if (data != pid.pid + 6999999) {
+            status = FAIL;
+            System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+          }
+          Minibase.BufferManager.unpinPage(pid, UNPIN_CLEAN);
+        } catch (Exception e) {
+          status = FAIL;
+          System.err.print("*** Could not pin page " + pid.pid + "\n");
+          e.printStackTrace();
+        }
+      }
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      Minibase.BufferManager.freePage(pid);
+
+    if (status == PASS)
+      System.out.print("  Test 6 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test6 ()
+
+  /**
+   * 
+   */
+  protected boolean test7() {
+
+    System.out.print("\n  Test 7 waits for a frame when all of them are pinned\n");
+
+    BufMgrConfig config = new BufMgrConfig(8);
+    config.pinWait = 1000;
+    config.partitions = 1; // the test fills every frame, which a partitioned pool may not let it
+    final BufMgr bufmgr = new BufMgr(config);
+    int numPages = config.numbufs + 1;
+    Page pg = new Page();
+    final PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Pin a page into each frame of a small pool\n");
+    try {
+      firstPid = bufmgr.newPage(pg, numPages);
+      for (pid.pid = firstPid.pid + 1; pid.pid < firstPid.pid + config.numbufs; pid.pid = pid.pid + 1)
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Pin one more page, while another thread unpins one\n");
+    final PageId firstUnpin = new PageId(firstPid.pid);
+    Thread unpinner = new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          // unpin early then
+        }
+        bufmgr.unpinPage(firstUnpin, UNPIN_CLEAN);
+      }
+    };
+    unpinner.start();
+    PageId lastPid = new PageId(firstPid.pid + config.numbufs);
+    try {
+      bufmgr.pinPage(lastPid, pg, PIN_DISKIO);
+      bufmgr.unpinPage(lastPid, UNPIN_CLEAN);
+    } catch (IllegalStateException e) {
+      status = FAIL;
+      System.err.print("*** The pin gave up instead of waiting for the frame\n");
+    }
+    try {
+      unpinner.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    System.out.print("  - Pin a page into a full pool with nobody unpinning\n");
+    bufmgr.pinPage(firstUnpin, pg, PIN_DISKIO); // all frames are pinned again
+    try {
+      bufmgr.pinPage(lastPid, pg, PIN_DISKIO);
+      status = FAIL;
+      System.err.print("*** Pinned more pages than there are frames\n");
+    } catch (IllegalStateException e) {
+      System.out.println("  --> Failed as expected \n");
+    }
+
+    bufmgr.shutdown();
+    if (status == PASS)
+      System.out.print("  Test 7 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test7 ()
+
+  /**
+   * 
+   */
+  protected boolean test8() {
+
+    System.out.print("\n  Test 8 does normal buffer manager operations "
+        + "on a partitioned pool\n");
+
+    BufMgrConfig config = new BufMgrConfig(40);
+    config.partitions = 4;
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 5 * config.numbufs;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write a bunch of new pages\n");
+    try {
+      firstPid = bufmgr.newPage(pg, numPages);
+      bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 8999999, 0, pg.getData());
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+      }
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Flush the pool, and check the counts of all partitions\n");
+    bufmgr.flushAllPages();
+    if (bufmgr.getNumBuffers() != config.numbufs || bufmgr.getNumUnpinned() != config.numbufs
+        || bufmgr.getNumDirty() != 0) {
+      status = FAIL;
+      System.err.print("*** The pool has " + bufmgr.getNumBuffers() + " frames, "
+          + bufmgr.getNumUnpinned() + " unpinned and " + bufmgr.getNumDirty()
+          + " dirty,\n    but there should be " + config.numbufs + ", all unpinned and clean\n");
+    }
+
+    System.out.print("  - Read the pages back, and check their contents\n");
+    for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        if (Convert.getIntValue(0, pg.getData()) != pid.pid + 8999999) {
+          status = FAIL;
+          System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+        }
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      } catch (Exception e) {
+        status = FAIL;
+        System.err.print("*** Could not pin page " + pid.pid + "\n");
+        e.printStackTrace();
+      }
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 8 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test8 ()
+
+  /**
+   * 
+   */
+  protected boolean test9() {
+
+    System.out.print("\n  Test 9 grows and shrinks the buffer pool while "
+        + "pages are pinned\n");
+
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.partitions = 1; // the frame counts below are for one partition
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 64;
+    int numPinned = 40;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write a bunch of new pages\n");
+    try {
+      firstPid = bufmgr.newPage(pg, numPages);
+      bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 9999999, 0, pg.getData());
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+      }
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Grow the pool, and pin more pages than it used to hold\n");
+    bufmgr.pinPage(firstPid, pg, PIN_DISKIO);
+    bufmgr.resize(48);
+    try {
+      for (pid.pid = firstPid.pid + 1; pid.pid < firstPid.pid + numPinned; pid.pid = pid.pid + 1)
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPinned; pid.pid = pid.pid + 1)
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not pin page " + pid.pid + " after growing the pool\n");
+      e.printStackTrace();
+    }
+    if (status == PASS && bufmgr.getNumBuffers() != 48) {
+      status = FAIL;
+      System.err.print("*** The pool has " + bufmgr.getNumBuffers() + " frames instead of 48\n");
+    }
+
+    System.out.print("  - Shrink the pool, and check the contents of all pages\n");
+    bufmgr.resize(8);
+    if (status == PASS && (bufmgr.getNumBuffers() != 8 || bufmgr.getNumUnpinned() != 8)) {
+      status = FAIL;
+      System.err.print("*** The pool has " + bufmgr.getNumBuffers() + " frames, "
+          + bufmgr.getNumUnpinned() + " unpinned, instead of 8\n");
+    }
+    for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        if (Convert.getIntValue(0, pg.getData()) != pid.pid + 9999999) {
+          status = FAIL;
+          System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+        }
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      } catch (Exception e) {
+        status = FAIL;
+        System.err.print("*** Could not pin page " + pid.pid + "\n");
+        e.printStackTrace();
+      }
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 9 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test9 ()
+
+  /**
+   * Checks the statistics of the buffer manager, and its MBean.
+   */
+  protected boolean test10() {
+
+    System.out.print("\n  Test 10 counts hits, misses and evictions\n");
+
+    BufMgrConfig config = new BufMgrConfig(8);
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.statsSample = 1;
+    config.jmx = true;
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 16;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    try {
+      firstPid = bufmgr.newPage(pg, numPages);
+      bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages in the database.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Pin four pages twice, then more pages than fit\n");
+    BufMgrStats before = bufmgr.getStats();
+    for (int round = 0; round < 2; round++) {
+      for (pid.pid = firstPid.pid + 1; pid.pid <= firstPid.pid + 4; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      }
+    }
+    BufMgrStats after = bufmgr.getStats();
+    long hits = after.getHits() - before.getHits();
+    long misses = after.getMisses() - before.getMisses();
+    if (hits != 4 || misses != 4) {
+      status = FAIL;
+      System.err.print("*** Counted " + hits + " hits and " + misses + " misses instead of 4 each\n");
+    }
+    long timed = 0;
+    for (long count : after.getPinLatencyHistogram())
+      timed += count;
+    for (long count : before.getPinLatencyHistogram())
+      timed -= count;
+    if (status == PASS && timed != 8) {
+      status = FAIL;
+      System.err.print("*** Timed " + timed + " pins instead of 8\n");
+    }
+
+    for (pid.pid = firstPid.pid + 5; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    }
+    after = bufmgr.getStats();
+    if (status == PASS && (after.getEvictions() == 0 || after.getFramesSwept() == 0
+        || after.getMissLatency(99) == 0)) {
+      status = FAIL;
+      System.err.print("*** Missing statistics: " + after + "\n");
+    }
+
+    System.out.print("  - Read the counters through JMX\n");
+    try {
+      Object jmxHits = null;
+      for (ObjectName name : ManagementFactory.getPlatformMBeanServer().queryNames(
+          new ObjectName("bufmgr:type=BufMgr,*"), null))
+        jmxHits = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Hits");
+      if (status == PASS && !Long.valueOf(after.getHits()).equals(jmxHits)) {
+        status = FAIL;
+        System.err.print("*** The MBean reports " + jmxHits + " hits instead of " + after.getHits() + "\n");
+      }
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not read the MBean\n");
+      e.printStackTrace();
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+    try {
+      if (status == PASS && !ManagementFactory.getPlatformMBeanServer().queryNames(
+          new ObjectName("bufmgr:type=BufMgr,*"), null).isEmpty()) {
+        status = FAIL;
+        System.err.print("*** The MBean is still registered after shutdown\n");
+      }
+    } catch (Exception e) {
+      status = FAIL;
+      e.printStackTrace();
+    }
+
+    if (status == PASS)
+      System.out.print("  Test 10 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test10 ()
+
+  /**
+   * Runs a buffer manager on a simulated disk, without Minibase.
+   */
+  protected boolean test11() {
+
+    System.out.print("\n  Test 11 runs on a simulated disk with latency "
+        + "and a queue depth of one\n");
+
+    MemoryDisk disk = new MemoryDisk(256, 500, 500, 0, 1);
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.diskBackend = disk;
+    config.readAhead = 0;
+    config.partitions = 1; // the test fills every frame, which a partitioned pool may not let it
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 32;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid;
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write a bunch of new pages\n");
+    try {
+      firstPid = bufmgr.newPage(pg, numPages);
+      bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 7777777, 0, pg.getData());
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+      }
+      bufmgr.flushAllPages();
+    } catch (Exception e) {
+      System.err.print("*** Could not allocate new pages on the simulated disk.\n");
+      e.printStackTrace();
+      return false;
+    }
+
+    System.out.print("  - Read them back asynchronously, all at once\n");
+    long reads = disk.getReadCount();
+    long start = System.nanoTime();
+    List<CompletableFuture<Page>> pins = new ArrayList<CompletableFuture<Page>>();
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + 8; pid.pid = pid.pid + 1)
+      pins.add(bufmgr.pinPageAsync(new PageId(pid.pid)));
+    try {
+      for (int i = 0; i < pins.size(); i++) {
+        if (Convert.getIntValue(0, pins.get(i).join().getData()) != firstPid.pid + i + 7777777) {
+          status = FAIL;
+          System.err.print("*** Read wrong data back from page " + (firstPid.pid + i) + "\n");
+        }
+        bufmgr.unpinPage(new PageId(firstPid.pid + i), UNPIN_CLEAN);
+      }
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not pin the pages\n");
+      e.printStackTrace();
+    }
+    long millis = (System.nanoTime() - start) / 1000000;
+    reads = disk.getReadCount() - reads; // some of the pages may have stayed in the pool
+    if (status == PASS && (reads == 0 || millis < reads / 2)) {
+      status = FAIL;
+      System.err.print("*** Read " + reads + " pages in " + millis
+          + "ms, but reading them one at a time should take at least " + reads / 2 + "ms\n");
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 11 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test11 ()
+
+  /**
+   * Records a trace, and replays it in the simulator.
+   */
+  protected boolean test12() {
+
+    System.out.print("\n  Test 12 records a trace of pins and replays it "
+        + "at several pool sizes\n");
+
+    String tracePath = DB_PATH + ".trace";
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.diskBackend = new MemoryDisk(1024);
+    config.replacer = BufMgrConfig.CLOCK;
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.traceFile = tracePath;
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 64;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Pin hot pages and a scan, while recording the calls\n");
+    PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_DIRTY);
+    boolean[] touched = new boolean[numPages];
+    int distinct = 1;
+    touched[0] = true;
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < numPages; i++) {
+        pid.pid = firstPid.pid + (i % 4 == 0 ? i : (round * 7 + i) % 8); // a scan, and eight hot pages
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        bufmgr.unpinPage(pid, i % 3 == 0 ? UNPIN_DIRTY : UNPIN_CLEAN);
+        if (!touched[pid.pid - firstPid.pid]) {
+          touched[pid.pid - firstPid.pid] = true;
+          distinct++;
+        }
+      }
+    }
+    BufMgrStats recorded = bufmgr.getStats();
+    bufmgr.stopTrace();
+    bufmgr.shutdown();
+
+    System.out.print("  - Replay the trace at the same size, and larger\n");
+    try {
+      TraceSimulator simulator = new TraceSimulator(tracePath);
+      BufMgrStats same = simulator.simulate(16, BufMgrConfig.CLOCK);
+      if (same.getHits() != recorded.getHits() || same.getMisses() != recorded.getMisses()) {
+        status = FAIL;
+        System.err.print("*** The replay counted " + same.getHits() + " hits and " + same.getMisses()
+            + " misses, but the pool had " + recorded.getHits() + " and " + recorded.getMisses() + "\n");
+      }
+      BufMgrStats larger = simulator.simulate(64, BufMgrConfig.CLOCK);
+      if (status == PASS && larger.getMisses() != distinct) {
+        status = FAIL;
+        System.err.print("*** A pool that holds every page missed " + larger.getMisses()
+            + " times instead of " + distinct + "\n");
+      }
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not replay the trace\n");
+      e.printStackTrace();
+    }
+    new File(tracePath).delete();
+
+    if (status == PASS)
+      System.out.print("  Test 12 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test12 ()
+
+  /**
+   * Checks that the admission policy keeps hot pages from being displaced by
+   * pages used once.
+   */
+  protected boolean test13() {
+
+    System.out.print("\n  Test 13 keeps hot pages in the pool with the "
+        + "admission policy, next to pages used once\n");
+
+    boolean status = PASS;
+    long[] hotHits = new long[2];
+    for (int admit = 0; admit < 2; admit++) {
+
+      BufMgrConfig config = new BufMgrConfig(32);
+      config.diskBackend = new MemoryDisk(4096);
+      config.replacer = BufMgrConfig.CLOCK;
+      config.readAhead = 0;
+      config.partitions = 1;
+      config.admission = admit == 1;
+      BufMgr bufmgr = new BufMgr(config);
+      int numHot = 24;
+      Page pg = new Page();
+      PageId pid = new PageId();
+
+      System.out.print("  - Use " + numHot + " hot pages and a stream of cold ones, "
+          + (admit == 1 ? "with" : "without") + " admission\n");
+      PageId hotPid = bufmgr.newPage(pg, numHot);
+      bufmgr.unpinPage(hotPid, UNPIN_CLEAN);
+      PageId coldPid = bufmgr.newPage(pg, 2000);
+      bufmgr.unpinPage(coldPid, UNPIN_CLEAN);
+      int cold = 1;
+      for (int round = 0; round < 100; round++) {
+        for (pid.pid = hotPid.pid; pid.pid < hotPid.pid + numHot; pid.pid = pid.pid + 1) {
+          long hits = bufmgr.getStats().getHits();
+          bufmgr.pinPage(pid, pg, PIN_DISKIO);
+          bufmgr.unpinPage(pid, UNPIN_CLEAN);
+          hotHits[admit] += bufmgr.getStats().getHits() - hits;
+        }
+        for (int i = 0; i < 16; i++, cold++) {
+          pid.pid = coldPid.pid + cold;
+          bufmgr.pinPage(pid, pg, PIN_DISKIO);
+          bufmgr.unpinPage(pid, UNPIN_CLEAN);
+        }
+      }
+      if (admit == 1 && bufmgr.getStats().getAdmissionRejects() == 0) {
+        status = FAIL;
+        System.err.print("*** The admission policy never kept a page out\n");
+      }
+      bufmgr.shutdown();
+    }
+
+    if (status == PASS && hotHits[1] <= hotHits[0]) {
+      status = FAIL;
+      System.err.print("*** The hot pages were hit " + hotHits[1] + " times with admission, "
+          + "but " + hotHits[0] + " times without\n");
+    }
+
+    if (status == PASS)
+      System.out.print("  Test 13 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test13 ()
+
+  /**
+   * Reads pages optimistically, next to a thread writing to them.
+   */
+  protected boolean test14() {
+
+    System.out.print("\n  Test 14 reads pages without pinning them, "
+        + "while other threads replace them\n");
+
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.diskBackend = new MemoryDisk(1024);
+    config.readAhead = 0;
+    config.bgWriterThreads = 0;
+    config.partitions = 1;
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numPages = 8;
+    final int last = PAGE_SIZE - 4;
+    Page pg = new Page();
+    Page copy = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write some new pages\n");
+    final PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      Convert.setIntValue(pid.pid + 5555, 0, pg.getData());
+      Convert.setIntValue(pid.pid + 5555, last, pg.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+
+    System.out.print("  - Read them back without pins, and with one\n");
+    long hits = bufmgr.getStats().getHits();
+    for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.readPage(pid, copy);
+      if (Convert.getIntValue(0, copy.getData()) != pid.pid + 5555) {
+        status = FAIL;
+        System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+      }
+    }
+    if (status == PASS && bufmgr.getStats().getHits() != hits) {
+      status = FAIL;
+      System.err.print("*** Reading unpinned pages pinned them\n");
+    }
+    bufmgr.pinPage(firstPid, pg, PIN_DISKIO);
+    bufmgr.readPage(firstPid, copy);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    if (status == PASS && (Convert.getIntValue(0, copy.getData()) != firstPid.pid + 5555
+        || bufmgr.getStats().getHits() != hits + 2)) {
+      status = FAIL;
+      System.err.print("*** Reading a pinned page did not pin it once more\n");
+    }
+
+    System.out.print("  - Read more pages than fit from several threads, so frames change hands\n");
+    final int numMore = 64;
+    final PageId morePid = bufmgr.newPage(pg, numMore);
+    bufmgr.unpinPage(morePid, UNPIN_CLEAN);
+    for (pid.pid = morePid.pid; pid.pid < morePid.pid + numMore; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      Convert.setIntValue(pid.pid + 5555, 0, pg.getData());
+      Convert.setIntValue(pid.pid + 5555, last, pg.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+    final int numReaders = 4;
+    final boolean[] results = new boolean[numReaders];
+    Thread[] readers = new Thread[numReaders];
+    for (int t = 0; t < numReaders; t++) {
+      final int me = t;
+      readers[t] = new Thread() {
+        public void run() {
+          Page tpg = new Page();
+          PageId tpid = new PageId();
+          boolean tstatus = PASS;
+          java.util.Random rand = new java.util.Random(me);
+          for (int i = 0; tstatus == PASS && i < 20000; i++) {
+            // most reads go to a few hot pages, the rest keep replacing frames under them
+            tpid.pid = morePid.pid + (i % 4 != 0 ? rand.nextInt(4) : rand.nextInt(numMore));
+            bufmgr.readPage(tpid, tpg);
+            int head = Convert.getIntValue(0, tpg.getData());
+            int tail = Convert.getIntValue(last, tpg.getData());
+            if (head != tpid.pid + 5555 || tail != head) {
+              tstatus = FAIL;
+              System.err.print("*** Read " + head + " and " + tail + " back from page "
+                  + tpid.pid + "\n");
+            }
+          }
+          results[me] = tstatus;
+        }
+      };
+      readers[t].start();
+    }
+    for (int t = 0; t < numReaders; t++) {
+      try {
+        readers[t].join();
+      } catch (InterruptedException e) {
+        status = FAIL;
+      }
+      status &= results[t];
+    }
+
+    for (pid.pid = morePid.pid; pid.pid < morePid.pid + numMore; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 14 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test14 ()
+
+  /**
+   * Pins a few hot pages from many threads, so their pin counts get striped,
+   * next to a thread replacing the other pages.
+   */
+  protected boolean test15() {
+
+    System.out.print("\n  Test 15 pins a few hot pages from many threads "
+        + "at once, while another thread replaces the rest\n");
+
+    BufMgrConfig config = new BufMgrConfig(32);
+    config.diskBackend = new MemoryDisk(1024);
+    config.replacer = BufMgrConfig.CLOCK;
+    config.readAhead = 0;
+    config.bgWriterThreads = 0;
+    config.partitions = 1;
+    config.stripedPins = true;
+    config.stripeAfter = 1; // stripe the hot pages as soon as their pins collide
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numPages = 256;
+    final int numHot = 2;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write some new pages\n");
+    final PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      Convert.setIntValue(pid.pid + 3333, 0, pg.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+
+    System.out.print("  - Pin the hot pages from several threads, and the rest from one\n");
+    final int numThreads = 8;
+    final boolean[] results = new boolean[numThreads + 1];
+    final int[] striped = new int[1];
+    Thread[] threads = new Thread[numThreads + 1];
+    for (int t = 0; t <= numThreads; t++) {
+      final int me = t;
+      threads[t] = new Thread() {
+        public void run() {
+          Page tpg = new Page();
+          PageId tpid = new PageId();
+          boolean tstatus = PASS;
+          for (int i = 0; tstatus == PASS && i < 50000; i++) {
+            // the last thread walks through all the pages, the others share the hot ones
+            tpid.pid = firstPid.pid + (me == numThreads ? numHot + i % (numPages - numHot) : i % numHot);
+            try {
+              bufmgr.pinPage(tpid, tpg, PIN_DISKIO);
+              if (Convert.getIntValue(0, tpg.getData()) != tpid.pid + 3333) {
+                tstatus = FAIL;
+                System.err.print("*** Read wrong data back from page " + tpid.pid + "\n");
+              }
+              if (me == 0 && i % 1000 == 0)
+                striped[0] = Math.max(striped[0], bufmgr.getStats().getNumStriped());
+              bufmgr.unpinPage(tpid, UNPIN_CLEAN);
+            } catch (Exception e) {
+              tstatus = FAIL;
+              System.err.print("*** Could not pin page " + tpid.pid + "\n");
+              e.printStackTrace();
+            }
+          }
+          results[me] = tstatus;
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t <= numThreads; t++) {
+      try {
+        threads[t].join();
+      } catch (InterruptedException e) {
+        status = FAIL;
+      }
+      status &= results[t];
+    }
+    System.out.print("    (" + striped[0] + " frames with striped pins)\n");
+
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+
+    System.out.print("  - Replace every page, the hot ones too\n");
+    for (int round = 0; status == PASS && round < 3; round++) {
+      for (pid.pid = firstPid.pid + numHot; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      }
+    }
+    if (status == PASS && bufmgr.getStats().getNumStriped() != 0) {
+      status = FAIL;
+      System.err.print("*** " + bufmgr.getStats().getNumStriped()
+          + " frames with striped pins were never replaced\n");
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.freePage(pid);
+      } catch (Exception e) {
+        status = FAIL;
+        System.err.print("*** Error freeing page " + pid.pid + "\n");
+        e.printStackTrace();
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 15 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test15 ()
+
+  /**
+   * Pins and unpins batches of pages, and checks that the missing pages of a
+   * batch are read a run at a time.
+   */
+  protected boolean test16() {
+
+    System.out.print("\n  Test 16 pins and unpins batches of pages, "
+        + "reading runs of missing pages at once\n");
+
+    BufMgrConfig config = new BufMgrConfig(32);
+    MemoryDisk disk = new MemoryDisk(1024);
+    config.diskBackend = disk;
+    config.replacer = BufMgrConfig.CLOCK;
+    config.readAhead = 0;
+    config.bgWriterThreads = 0;
+    config.partitions = 1;
+    config.admission = false;
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 64;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write some new pages\n");
+    PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      Convert.setIntValue(pid.pid + 4444, 0, pg.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+    bufmgr.flushAllPages();
+
+    // three runs of pages that are no longer buffered, out of order, one page twice
+    int[] offsets = { 12, 0, 3, 1, 11, 2, 20, 10, 0 };
+    PageId[] batch = new PageId[offsets.length];
+    Page[] pages = new Page[offsets.length];
+    for (int i = 0; i < offsets.length; i++) {
+      batch[i] = new PageId(firstPid.pid + offsets[i]);
+      pages[i] = new Page();
+    }
+
+    System.out.print("  - Pin the pages as a batch\n");
+    long reads = disk.getReadRequestCount();
+    long misses = bufmgr.getStats().getMisses();
+    bufmgr.pinPages(batch, pages);
+    for (int i = 0; status == PASS && i < batch.length; i++) {
+      if (Convert.getIntValue(0, pages[i].getData()) != batch[i].pid + 4444) {
+        status = FAIL;
+        System.err.print("*** Read wrong data back from page " + batch[i].pid + "\n");
+      }
+    }
+    if (status == PASS && disk.getReadRequestCount() - reads != 3) {
+      status = FAIL;
+      System.err.print("*** The batch took " + (disk.getReadRequestCount() - reads)
+          + " reads, but should take 3\n");
+    }
+    if (status == PASS && bufmgr.getStats().getMisses() - misses != 8) {
+      status = FAIL;
+      System.err.print("*** The batch missed " + (bufmgr.getStats().getMisses() - misses)
+          + " times, but should miss 8 times\n");
+    }
+
+    System.out.print("  - Pin the same pages again, which are all buffered now\n");
+    reads = disk.getReadRequestCount();
+    long hits = bufmgr.getStats().getHits();
+    bufmgr.pinPages(batch, pages);
+    if (status == PASS && (disk.getReadRequestCount() != reads
+        || bufmgr.getStats().getHits() - hits != batch.length)) {
+      status = FAIL;
+      System.err.print("*** Pinning a buffered batch should only hit\n");
+    }
+
+    System.out.print("  - Unpin a batch with a page that is not buffered\n");
+    PageId[] bad = { batch[0], new PageId(firstPid.pid + numPages + 100) };
+    try {
+      bufmgr.unpinPages(bad, UNPIN_CLEAN);
+      status = FAIL;
+      System.err.print("*** Unpinning a page that is not buffered should fail\n");
+    } catch (IllegalArgumentException exc) {
+      System.out.print("  --> Failed as expected \n");
+    }
+
+    System.out.print("  - Unpin both batches\n");
+    bufmgr.unpinPages(batch, UNPIN_CLEAN);
+    bufmgr.unpinPages(batch, UNPIN_CLEAN);
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+
+    System.out.print("  - Pin more pages than fit in the pool as a batch\n");
+    batch = new PageId[bufmgr.getNumBuffers() + 1];
+    pages = new Page[batch.length];
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = new PageId(firstPid.pid + i);
+      pages[i] = new Page();
+    }
+    try {
+      bufmgr.pinPages(batch, pages);
+      status = FAIL;
+      System.err.print("*** Pinning more pages than buffers should fail\n");
+    } catch (IllegalStateException exc) {
+      System.out.print("  --> Failed as expected \n");
+    }
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** A failed batch left " + bufmgr.getNumPinned() + " frames pinned\n");
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.freePage(pid);
+      } catch (Exception e) {
+        status = FAIL;
+        System.err.print("*** Error freeing page " + pid.pid + "\n");
+        e.printStackTrace();
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 16 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test16 ()
+
+  /**
+   * Replaces a mix of clean and dirty pages with Clock and with CostClock,
+   * and checks that CostClock writes fewer victims before replacing them, and
+   * hands the dirty ones it passes over to a background writer if there is
+   * one; then fills a pool with dirty pages, and checks that CostClock still
+   * takes one of them after looking at no more frames than its lookahead.
+   */
+  protected boolean test17() {
+
+    System.out.print("\n  Test 17 replaces a mix of clean and dirty pages, "
+        + "with and without regard to the cost of writing them\n");
+
+    boolean status = PASS;
+    String[] policies = { BufMgrConfig.CLOCK, BufMgrConfig.COST_CLOCK, BufMgrConfig.COST_CLOCK };
+    long[] syncWrites = new long[policies.length];
+    long[] handOffs = new long[policies.length];
+    for (int run = 0; run < policies.length; run++) {
+
+      BufMgrConfig config = new BufMgrConfig(32);
+      config.diskBackend = new MemoryDisk(1024);
+      config.replacer = policies[run];
+      config.readAhead = 0;
+      config.partitions = 1;
+      config.admission = false;
+      config.bgWriterThreads = run == 2 ? 1 : 0;
+      config.bgWriterDelay = 1000; // so it mostly writes what the replacer queues
+      BufMgr bufmgr = new BufMgr(config);
+      int numPages = 256;
+      Page pg = new Page();
+      PageId pid = new PageId();
+
+      System.out.print("  - Use random pages, a quarter of them dirty, with " + policies[run]
+          + (run == 2 ? " and a background writer" : "") + "\n");
+      PageId firstPid = bufmgr.newPage(pg, numPages);
+      bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        Convert.setIntValue(pid.pid + 5555, 0, pg.getData());
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+      }
+      bufmgr.flushAllPages();
+
+      long writes = bufmgr.getSyncWriteCount();
+      long handed = bufmgr.getStats().getHandOffs();
+      Random random = new Random(17);
+      for (int i = 0; status == PASS && i < 20000; i++) {
+        pid.pid = firstPid.pid + random.nextInt(numPages);
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        if (Convert.getIntValue(0, pg.getData()) != pid.pid + 5555) {
+          status = FAIL;
+          System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+        }
+        boolean dirty = pid.pid % 4 == 0;
+        if (dirty)
+          Convert.setIntValue(pid.pid + 5555, 0, pg.getData());
+        bufmgr.unpinPage(pid, dirty);
+      }
+      syncWrites[run] = bufmgr.getSyncWriteCount() - writes;
+      handOffs[run] = bufmgr.getStats().getHandOffs() - handed;
+      System.out.print("    (" + syncWrites[run] + " victims written before they were replaced, "
+          + handOffs[run] + " handed to the writer)\n");
+      bufmgr.shutdown();
+    }
+
+    if (status == PASS && syncWrites[1] >= syncWrites[0]) {
+      status = FAIL;
+      System.err.print("*** " + BufMgrConfig.COST_CLOCK + " wrote " + syncWrites[1] + " victims, "
+          + "but " + BufMgrConfig.CLOCK + " only " + syncWrites[0] + "\n");
+    }
+    // how many of them the writer cleans in time depends on the scheduler; that it got them does not
+    if (status == PASS && (handOffs[0] != 0 || handOffs[1] != 0 || handOffs[2] == 0)) {
+      status = FAIL;
+      System.err.print("*** The replacers handed " + handOffs[0] + ", " + handOffs[1] + " and " + handOffs[2]
+          + " frames to the writer, but only " + BufMgrConfig.COST_CLOCK + " with a writer should\n");
+    }
+
+    System.out.print("  - Fill the pool with dirty pages, and miss with " + BufMgrConfig.COST_CLOCK + "\n");
+    BufMgrConfig config = new BufMgrConfig(32);
+    config.diskBackend = new MemoryDisk(1024);
+    config.replacer = BufMgrConfig.COST_CLOCK;
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.admission = false;
+    config.bgWriterThreads = 0;
+    BufMgr bufmgr = new BufMgr(config);
+    Page pg = new Page();
+    PageId pid = new PageId();
+    PageId firstPid = bufmgr.newPage(pg, config.numbufs + 2);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + config.numbufs + 2; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+    // the misses that filled the pool cleared the reference bits, so the
+    // frames are dirty and mostly unreferenced; the next miss passes over 16
+    // of them at most (CostClock.LOOKAHEAD), and takes the one after
+    long swept = bufmgr.getStats().getFramesSwept();
+    long writes = bufmgr.getSyncWriteCount();
+    pid.pid = firstPid.pid;
+    bufmgr.pinPage(pid, pg, PIN_DISKIO);
+    bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    swept = bufmgr.getStats().getFramesSwept() - swept;
+    writes = bufmgr.getSyncWriteCount() - writes;
+    System.out.print("    (looked at " + swept + " frames, and wrote " + writes + " victims)\n");
+    if (status == PASS && (swept > 16 + 1 || writes != 1)) {
+      status = FAIL;
+      System.err.print("*** " + BufMgrConfig.COST_CLOCK + " looked at " + swept + " frames and wrote "
+          + writes + " victims, but should take a dirty victim after at most 17 frames\n");
+    }
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + config.numbufs + 2; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 17 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test17 ()
+
+  /**
+   * Pins, reads, frees and flushes an invalid page number, once the page
+   * table has seen many pages come and go.
+   */
+  protected boolean test18() {
+
+    System.out.print("\n  Test 18 uses an invalid page number "
+        + "after many pages went through the pool\n");
+
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.diskBackend = new MemoryDisk(4096);
+    config.readAhead = 0;
+    config.partitions = 1;
+    final BufMgr bufmgr = new BufMgr(config);
+    int numPages = 2000;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate, pin and unpin " + numPages + " pages\n");
+    PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    }
+
+    System.out.print("  - Pin, read, flush and free page " + INVALID_PAGEID + "\n");
+    final boolean[] done = new boolean[4];
+    Thread thread = new Thread() {
+      public void run() {
+        PageId bad = new PageId(INVALID_PAGEID);
+        Page tpg = new Page();
+        try {
+          bufmgr.pinPage(bad, tpg, PIN_DISKIO);
+        } catch (IllegalArgumentException exc) {
+          done[0] = true;
+        }
+        try {
+          bufmgr.readPage(bad, tpg);
+        } catch (IllegalArgumentException exc) {
+          done[1] = true;
+        }
+        try {
+          bufmgr.pinPages(new PageId[] { new PageId(0), bad }, new Page[] { new Page(), tpg });
+        } catch (IllegalArgumentException exc) {
+          done[2] = true;
+        }
+        bufmgr.flushPage(bad);
+        try {
+          bufmgr.freePage(bad);
+        } catch (IllegalArgumentException exc) {
+          // the disk has no such page either
+        }
+        done[3] = true;
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      thread.join(10000);
+    } catch (InterruptedException exc) {
+      status = FAIL;
+    }
+    if (!done[3]) {
+      status = FAIL;
+      System.err.print("*** Using an invalid page number did not return\n");
+    }
+    else if (!done[0] || !done[1] || !done[2]) {
+      status = FAIL;
+      System.err.print("*** Pinning an invalid page number should fail\n");
+    }
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+
+    if (status == PASS) {
+      System.out.print("  - Pin the first pages again\n");
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + 4; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 18 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test18 ()
+
+  /**
+   * Runs each replacement policy on hot pages mixed with a stream of pages
+   * used once, and checks that the policies that are meant to resist scans
+   * keep the hot pages where Clock does not.
+   */
+  protected boolean test19() {
+
+    System.out.print("\n  Test 19 compares the replacement policies "
+        + "on hot pages mixed with a scan\n");
+
+    boolean status = PASS;
+    String[] policies = { BufMgrConfig.CLOCK, BufMgrConfig.LRUK, BufMgrConfig.TWOQ, BufMgrConfig.ARC };
+    int numHot = 24;
+    int rounds = 100;
+    for (int burst = 2; burst > 0; burst--) {
+      System.out.print("  - Pin each of " + numHot + " hot pages " + (burst == 2 ? "twice" : "once")
+          + " a round, then 16 pages used once\n");
+      long[] hotHits = new long[policies.length];
+      for (int run = 0; run < policies.length; run++) {
+
+        BufMgrConfig config = new BufMgrConfig(32);
+        config.diskBackend = new MemoryDisk(4096);
+        config.replacer = policies[run];
+        config.readAhead = 0;
+        config.partitions = 1;
+        config.admission = false;
+        BufMgr bufmgr = new BufMgr(config);
+        Page pg = new Page();
+        PageId pid = new PageId();
+
+        PageId hotPid = bufmgr.newPage(pg, numHot);
+        bufmgr.unpinPage(hotPid, UNPIN_CLEAN);
+        PageId coldPid = bufmgr.newPage(pg, 16 * rounds);
+        bufmgr.unpinPage(coldPid, UNPIN_CLEAN);
+        for (int round = 0, cold = 0; round < rounds; round++) {
+          for (pid.pid = hotPid.pid; pid.pid < hotPid.pid + numHot; pid.pid = pid.pid + 1) {
+            long hits = bufmgr.getStats().getHits();
+            for (int i = 0; i < burst; i++) {
+              bufmgr.pinPage(pid, pg, PIN_DISKIO);
+              bufmgr.unpinPage(pid, UNPIN_CLEAN);
+              if (i == 0)
+                hotHits[run] += bufmgr.getStats().getHits() - hits;
+            }
+          }
+          for (int i = 0; i < 16; i++, cold++) {
+            pid.pid = coldPid.pid + cold;
+            bufmgr.pinPage(pid, pg, PIN_DISKIO);
+            bufmgr.unpinPage(pid, UNPIN_CLEAN);
+          }
+        }
+        bufmgr.shutdown();
+        System.out.print("    (" + policies[run] + " hit the hot pages " + hotHits[run] + " times)\n");
+      }
+
+      // the hot pages are used again after 40 others, more than fit, so Clock
+      // loses them all; ARC only remembers as many evicted pages as T1 leaves
+      // room for, so it needs the second pin to see that a page is hot
+      long wanted = numHot * rounds * 3 / 4;
+      for (int run = 1; run < policies.length; run++) {
+        if (burst == 1 && policies[run].equals(BufMgrConfig.ARC))
+          continue;
+        if (status == PASS && (hotHits[run] < wanted || hotHits[run] < 10 * hotHits[0])) {
+          status = FAIL;
+          System.err.print("*** " + policies[run] + " hit the hot pages " + hotHits[run]
+              + " times, but should hit them at least " + wanted + " times\n");
+        }
+      }
+    }
+
+    if (status == PASS)
+      System.out.print("  Test 19 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test19 ()
+
+  /**
+   * Checkpoints while one thread dirties pages and others churn the pool,
+   * and checks that a checkpoint leaves no page dirty that was dirtied before
+   * it started.
+   */
+  protected boolean test20() {
+
+    System.out.print("\n  Test 20 checkpoints while other threads "
+        + "dirty pages and replace frames\n");
+
+    BufMgrConfig config = new BufMgrConfig(32);
+    config.diskBackend = new MemoryDisk(1024, 0, 50, 0, 0); // writes take long enough to overlap
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.bgWriterThreads = 0;
+    config.admission = true; // rejected misses claim a victim, and give it back unwritten
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numPages = 256;
+    final int numHot = 16;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate some new pages\n");
+    final PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+
+    System.out.print("  - Dirty the hot pages in one thread, and checkpoint in another\n");
+    final boolean[] stop = new boolean[1];
+    final boolean[] results = { PASS, PASS, PASS, PASS };
+    Thread[] churners = new Thread[2];
+    for (int t = 0; t < churners.length; t++) {
+      final int me = t;
+      churners[t] = new Thread() {
+        public void run() {
+          Page tpg = new Page();
+          PageId tpid = new PageId();
+          try {
+            for (int i = me; !stop[0]; i++) {
+              tpid.pid = firstPid.pid + (i % 4 == 0 ? i % numHot : numHot + i % (numPages - numHot));
+              bufmgr.pinPage(tpid, tpg, PIN_DISKIO);
+              bufmgr.unpinPage(tpid, UNPIN_CLEAN);
+            }
+          } catch (Exception e) {
+            results[2 + me] = FAIL;
+            e.printStackTrace();
+          }
+        }
+      };
+      churners[t].start();
+    }
+    final Thread writer = new Thread() {
+      public void run() {
+        Page tpg = new Page();
+        PageId tpid = new PageId();
+        try {
+          for (int i = 0; i < 5000; i++) {
+            tpid.pid = firstPid.pid + i % numHot;
+            bufmgr.pinPage(tpid, tpg, PIN_DISKIO);
+            Convert.setIntValue(i, 0, tpg.getData());
+            bufmgr.unpinPage(tpid, UNPIN_DIRTY);
+          }
+        } catch (Exception e) {
+          results[0] = FAIL;
+          e.printStackTrace();
+        }
+      }
+    };
+    Thread checkpointer = new Thread() {
+      public void run() {
+        try {
+          while (writer.isAlive())
+            bufmgr.flushAllPages();
+          Page tpg = new Page();
+          PageId tpid = new PageId();
+          for (int i = 0; i < 20; i++) {
+            for (tpid.pid = firstPid.pid; tpid.pid < firstPid.pid + numHot; tpid.pid = tpid.pid + 1) {
+              bufmgr.pinPage(tpid, tpg, PIN_DISKIO);
+              bufmgr.unpinPage(tpid, UNPIN_DIRTY);
+            }
+            bufmgr.flushAllPages(); // nobody else dirties pages now, but frames keep changing hands
+            if (bufmgr.getNumDirty() != 0) {
+              results[1] = FAIL;
+              System.err.print("*** A checkpoint left " + bufmgr.getNumDirty() + " pages dirty\n");
+              break;
+            }
+          }
+        } catch (Exception e) {
+          results[1] = FAIL;
+          e.printStackTrace();
+        }
+      }
+    };
+    writer.start();
+    checkpointer.start();
+    try {
+      writer.join();
+      checkpointer.join();
+      stop[0] = true;
+      for (Thread churner : churners)
+        churner.join();
+    } catch (InterruptedException e) {
+      status = FAIL;
+    }
+    for (boolean result : results)
+      status &= result;
+
+    if (status == PASS && bufmgr.getNumDirty() != 0) {
+      status = FAIL;
+      System.err.print("*** " + bufmgr.getNumDirty() + " pages are still dirty after the last checkpoint\n");
+    }
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 20 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test20 ()
+
+  /**
+   * Forces every frame of a small pool to switch to striped pins, and checks
+   * that striped frames are pinned, read, counted, waited for and replaced
+   * like any other.
+   */
+  protected boolean test21() {
+
+    System.out.print("\n  Test 21 pins, waits for and replaces frames "
+        + "with striped pins\n");
+
+    BufMgrConfig config = new BufMgrConfig(8);
+    config.diskBackend = new MemoryDisk(1024);
+    config.replacer = BufMgrConfig.CLOCK;
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.bgWriterThreads = 0;
+    config.admission = false;
+    config.stripedPins = true;
+    config.stripeAfter = 0; // a frame pinned twice switches at once
+    config.pinWait = 5000;
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numPages = 64;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate and write some new pages\n");
+    final PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      Convert.setIntValue(pid.pid + 5555, 0, pg.getData());
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+
+    System.out.print("  - Pin a page into each frame twice, so that all of them stripe\n");
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + config.numbufs; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+    }
+    pid.pid = firstPid.pid;
+    bufmgr.pinPage(pid, pg, PIN_DISKIO);
+    Convert.setIntValue(firstPid.pid + 7777, 0, pg.getData());
+    bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    if (bufmgr.getStats().getNumStriped() != config.numbufs) {
+      status = FAIL;
+      System.err.print("*** " + bufmgr.getStats().getNumStriped() + " frames have striped pins, but "
+          + config.numbufs + " should have\n");
+    }
+    if (status == PASS && bufmgr.getNumPinned() != config.numbufs) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are pinned,\n    but all " + config.numbufs + " should be.\n");
+    }
+
+    System.out.print("  - Read the pages on striped frames\n");
+    Page copy = new Page();
+    for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + config.numbufs; pid.pid = pid.pid + 1) {
+      bufmgr.readPage(pid, copy);
+      int expected = pid.pid == firstPid.pid ? firstPid.pid + 7777 : pid.pid + 5555;
+      if (Convert.getIntValue(0, copy.getData()) != expected) {
+        status = FAIL;
+        System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+      }
+    }
+
+    System.out.print("  - Wait for a frame, and unpin a striped page to free one\n");
+    final boolean[] done = new boolean[1];
+    Thread waiter = new Thread() {
+      public void run() {
+        Page tpg = new Page();
+        PageId tpid = new PageId(firstPid.pid + numPages - 1);
+        try {
+          bufmgr.pinPage(tpid, tpg, PIN_DISKIO);
+          done[0] = Convert.getIntValue(0, tpg.getData()) == tpid.pid + 5555;
+          bufmgr.unpinPage(tpid, UNPIN_CLEAN);
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    };
+    waiter.setDaemon(true);
+    waiter.start();
+    try {
+      Thread.sleep(100);
+      if (status == PASS && !waiter.isAlive()) {
+        status = FAIL;
+        System.err.print("*** A page was pinned while every frame was pinned\n");
+      }
+      pid.pid = firstPid.pid;
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      waiter.join(10000);
+    } catch (InterruptedException e) {
+      status = FAIL;
+    }
+    if (status == PASS && !done[0]) {
+      status = FAIL;
+      System.err.print("*** The waiting pin did not get the frame of the striped page\n");
+    }
+
+    System.out.print("  - Unpin the rest, and replace every page\n");
+    for (pid.pid = firstPid.pid + 1; pid.pid < firstPid.pid + config.numbufs; pid.pid = pid.pid + 1) {
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    }
+    if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+      status = FAIL;
+      System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+          + " frames are still pinned,\n    but there should be none.\n");
+    }
+    for (pid.pid = firstPid.pid + config.numbufs; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    }
+    if (status == PASS && bufmgr.getStats().getNumStriped() != 0) {
+      status = FAIL;
+      System.err.print("*** " + bufmgr.getStats().getNumStriped()
+          + " frames with striped pins were never replaced\n");
+    }
+    pid.pid = firstPid.pid;
+    bufmgr.pinPage(pid, pg, PIN_DISKIO);
+    if (status == PASS && Convert.getIntValue(0, pg.getData()) != firstPid.pid + 7777) {
+      status = FAIL;
+      System.err.print("*** A write to a striped page was lost when it was replaced\n");
+    }
+    bufmgr.unpinPage(pid, UNPIN_CLEAN);
+
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1)
+      bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 21 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test21 ()
+
+  /**
+   * Dirties pages while background writers and checkpoints write them out,
+   * and checks that their writes never show as pins: the pages can be freed,
+   * pinned with PIN_MEMCPY, and the pool counts them unpinned.
+   */
+  protected boolean test22() {
+
+    System.out.print("\n  Test 22 uses pages while the background writer "
+        + "and checkpoints write them out\n");
+
+    BufMgrConfig config = new BufMgrConfig(32);
+    config.diskBackend = new MemoryDisk(1024, 0, 200, 0, 0); // writes take long enough to overlap
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.admission = false;
+    config.bgWriterThreads = 2;
+    config.bgWriterTarget = 32; // write every dirty frame
+    config.bgWriterDelay = 1;
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numPages = 24; // all of them stay buffered
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Allocate some new pages\n");
+    PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+
+    System.out.print("  - Replace and dirty them with PIN_MEMCPY, while another thread checkpoints\n");
+    final boolean[] stop = new boolean[1];
+    Thread checkpointer = new Thread() {
+      public void run() {
+        while (!stop[0])
+          bufmgr.flushAllPages();
+      }
+    };
+    checkpointer.setDaemon(true);
+    checkpointer.start();
+    for (int i = 0; status == PASS && i < 4000; i++) {
+      pid.pid = firstPid.pid + i % numPages;
+      pg = new Page(); // the last pin attached the old one to its frame
+      Convert.setIntValue(i, 0, pg.getData());
+      try {
+        bufmgr.pinPage(pid, pg, PIN_MEMCPY);
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+      } catch (IllegalArgumentException e) {
+        status = FAIL;
+        System.err.print("*** Could not replace page " + pid.pid + " while it was written out\n");
+        e.printStackTrace();
+      }
+      if (status == PASS && bufmgr.getNumUnpinned() != bufmgr.getNumBuffers()) {
+        status = FAIL;
+        System.err.print("*** The buffer manager thinks " + bufmgr.getNumPinned()
+            + " frames are pinned,\n    but there should be none.\n");
+      }
+      if (i % 100 == 99)
+        bufmgr.flushPage(pid);
+    }
+    stop[0] = true;
+    try {
+      checkpointer.join();
+    } catch (InterruptedException e) {
+      status = FAIL;
+    }
+
+    System.out.print("  - Read them back, dirty them again, and free them\n");
+    Page page = new Page();
+    for (pid.pid = firstPid.pid; status == PASS && pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, page, PIN_DISKIO);
+      int expected = (4000 - 1 - (pid.pid - firstPid.pid)) / numPages * numPages + (pid.pid - firstPid.pid);
+      if (Convert.getIntValue(0, page.getData()) != expected) {
+        status = FAIL;
+        System.err.print("*** Read wrong data back from page " + pid.pid + "\n");
+      }
+      bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.freePage(pid);
+      } catch (IllegalArgumentException e) {
+        status = FAIL;
+        System.err.print("*** Could not free page " + pid.pid + " while it was written out\n");
+        e.printStackTrace();
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 22 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test22 ()
+
+  /**
+   * Fails the reads of a batch of pins under LRU-K, and checks that the
+   * victims the batch reserved can be used again afterwards.
+   */
+  protected boolean test23() {
+
+    System.out.print("\n  Test 23 fails the reads of a batch of pins, "
+        + "and uses the whole pool afterwards\n");
+
+    final boolean[] failing = new boolean[1];
+    BufMgrConfig config = new BufMgrConfig(8);
+    config.diskBackend = new MemoryDisk(1024) {
+      public void read(int pid, ByteBuffer dst) {
+        if (failing[0])
+          throw new IllegalStateException("injected read failure");
+        super.read(pid, dst);
+      }
+      public void readRun(int firstPid, ByteBuffer[] dsts, int count) {
+        if (failing[0])
+          throw new IllegalStateException("injected read failure");
+        super.readRun(firstPid, dsts, count);
+      }
+    };
+    config.replacer = BufMgrConfig.LRUK;
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.admission = false;
+    config.bgWriterThreads = 0;
+    BufMgr bufmgr = new BufMgr(config);
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Pin a batch of pages that are not next to each other, with reads failing\n");
+    PageId firstPid = bufmgr.newPage(pg, 2 * config.numbufs);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    bufmgr.freePage(firstPid); // so that all the frames are empty
+    PageId[] batch = new PageId[4];
+    Page[] pages = new Page[batch.length];
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = new PageId(firstPid.pid + 1 + 2 * i);
+      pages[i] = new Page();
+    }
+    failing[0] = true;
+    try {
+      bufmgr.pinPages(batch, pages);
+      status = FAIL;
+      System.err.print("*** The batch was pinned, though its reads failed\n");
+    } catch (IllegalStateException e) {
+      System.out.print("    (failed as expected)\n");
+    }
+    failing[0] = false;
+
+    System.out.print("  - Pin a page into every frame\n");
+    for (pid.pid = firstPid.pid + 1; status == PASS && pid.pid <= firstPid.pid + config.numbufs; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      } catch (IllegalStateException e) {
+        status = FAIL;
+        System.err.print("*** Could not pin page " + pid.pid + " into a pool of "
+            + bufmgr.getNumBuffers() + " frames, with " + (pid.pid - firstPid.pid - 1) + " pinned\n");
+      }
+    }
+    for (pid.pid = firstPid.pid + 1; pid.pid <= firstPid.pid + config.numbufs; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      } catch (IllegalArgumentException e) {
+        break; // not pinned, since the pin above failed
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 23 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test23 ()
+
+  /**
+   * Pins as many pages as a partitioned pool has frames, all routed to the
+   * same two partitions, which have to borrow the other partitions' frames.
+   */
+  protected boolean test24() {
+
+    System.out.print("\n  Test 24 fills a partitioned pool with pages "
+        + "of only some of its partitions\n");
+
+    BufMgrConfig config = new BufMgrConfig(16);
+    config.diskBackend = new MemoryDisk(1024);
+    config.partitions = 4;
+    config.readAhead = 0;
+    config.bgWriterThreads = 0;
+    BufMgr bufmgr = new BufMgr(config);
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Pin a page into every frame\n");
+    PageId firstPid = bufmgr.newPage(pg, 4 * config.numbufs);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    int first = (firstPid.pid / 8 + 1) * 8; // start at an extent, so the pages fill two of them
+    for (pid.pid = first; status == PASS && pid.pid < first + config.numbufs; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      } catch (IllegalStateException e) {
+        status = FAIL;
+        System.err.print("*** Could not pin page " + pid.pid + " into a pool of "
+            + bufmgr.getNumBuffers() + " frames, with " + (pid.pid - first) + " pinned\n");
+      }
+    }
+    int pinned = pid.pid - first - (status == PASS ? 0 : 1);
+
+    if (status == PASS) {
+      System.out.print("  - Pin one more page, which must fail\n");
+      try {
+        bufmgr.pinPage(new PageId(first + config.numbufs), pg, PIN_DISKIO);
+        bufmgr.unpinPage(new PageId(first + config.numbufs), UNPIN_CLEAN);
+        status = FAIL;
+        System.err.print("*** The page was pinned, though every frame is\n");
+      } catch (IllegalStateException e) {
+        System.out.print("    (failed as expected)\n");
+      }
+    }
+    for (pid.pid = first; pid.pid < first + pinned; pid.pid = pid.pid + 1)
+      bufmgr.unpinPage(pid, UNPIN_CLEAN);
+
+    if (status == PASS) {
+      System.out.print("  - Go through the other pages, and check the size of the pool\n");
+      for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + 4 * config.numbufs; pid.pid = pid.pid + 1) {
+        bufmgr.pinPage(pid, pg, PIN_DISKIO);
+        bufmgr.unpinPage(pid, UNPIN_CLEAN);
+      }
+      if (bufmgr.getNumBuffers() != config.numbufs || bufmgr.getNumUnpinned() != config.numbufs) {
+        status = FAIL;
+        System.err.print("*** The pool has " + bufmgr.getNumBuffers() + " frames, "
+            + bufmgr.getNumUnpinned() + " unpinned, but it should have " + config.numbufs + "\n");
+      }
+    }
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 24 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test24 ()
+
+  /**
+   * Records a trace from several threads at once, and replays it.
+   */
+  protected boolean test25() {
+
+    System.out.print("\n  Test 25 records a trace from several threads, "
+        + "and replays it\n");
+
+    String tracePath = DB_PATH + ".trace";
+    BufMgrConfig config = new BufMgrConfig(64);
+    config.diskBackend = new MemoryDisk(1024);
+    config.replacer = BufMgrConfig.CLOCK;
+    config.readAhead = 0;
+    config.partitions = 1;
+    config.traceFile = tracePath;
+    final BufMgr bufmgr = new BufMgr(config);
+    final int numThreads = 4;
+    final int numPins = 3000; // so that each thread fills more than one buffer
+    boolean status = PASS;
+
+    System.out.print("  - Pin pages from " + numThreads + " threads, while recording the calls\n");
+    final PageId firstPid = bufmgr.newPage(new Page(), 8 * numThreads);
+    bufmgr.unpinPage(firstPid, UNPIN_DIRTY);
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int first = firstPid.pid + 8 * t;
+      threads[t] = new Thread() {
+        public void run() {
+          Page pg = new Page();
+          for (int i = 0; i < numPins; i++) {
+            PageId pid = new PageId(first + i % 8);
+            bufmgr.pinPage(pid, pg, PIN_DISKIO);
+            bufmgr.unpinPage(pid, i % 5 == 0 ? UNPIN_DIRTY : UNPIN_CLEAN);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        status = FAIL;
+      }
+    }
+    BufMgrStats recorded = bufmgr.getStats();
+    bufmgr.stopTrace();
+    bufmgr.shutdown();
+
+    System.out.print("  - Replay the trace\n");
+    try {
+      BufMgrStats replayed = new TraceSimulator(tracePath).simulate(64, BufMgrConfig.CLOCK);
+      if (replayed.getHits() != recorded.getHits() || replayed.getMisses() != recorded.getMisses()) {
+        status = FAIL;
+        System.err.print("*** The replay counted " + replayed.getHits() + " hits and " + replayed.getMisses()
+            + " misses, but the pool had " + recorded.getHits() + " and " + recorded.getMisses() + "\n");
+      }
+    } catch (Exception e) {
+      status = FAIL;
+      System.err.print("*** Could not replay the trace\n");
+      e.printStackTrace();
+    }
+    new File(tracePath).delete();
+
+    if (status == PASS)
+      System.out.print("  Test 25 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test25 ()
+
+  /**
+   * Checks that a mapped file only grows as far as the pages written to it,
+   * and that a checkpoint syncs the disk.
+   */
+  protected boolean test26() {
+
+    System.out.print("\n  Test 26 writes pages to a mapped file, and "
+        + "syncs the disk at a checkpoint\n");
+
+    boolean status = PASS;
+    String path = DB_PATH + ".mmap";
+    new File(path).delete();
+
+    System.out.print("  - Write a few pages to a mapped file\n");
+    FileChannelDisk file = new FileChannelDisk(path, true);
+    ByteBuffer buf = ByteBuffer.allocate(PAGE_SIZE);
+    for (int pid = 0; pid < 4; pid++) {
+      buf.putInt(0, pid + 2600000);
+      file.write(pid, buf); // the first page extends the file, the others are mapped
+      file.write(pid, buf);
+    }
+    file.read(10, buf);
+    if (buf.getInt(0) != 0) {
+      status = FAIL;
+      System.err.print("*** A page past the end of the file did not read as zeros\n");
+    }
+    for (int pid = 0; status == PASS && pid < 4; pid++) {
+      file.read(pid, buf);
+      if (buf.getInt(0) != pid + 2600000) {
+        status = FAIL;
+        System.err.print("*** Read wrong data back from page " + pid + "\n");
+      }
+    }
+    file.sync();
+    file.close();
+    if (new File(path).length() != 4 * PAGE_SIZE) {
+      status = FAIL;
+      System.err.print("*** The file has " + new File(path).length() + " bytes, but 4 pages were written\n");
+    }
+    new File(path).delete();
+
+    System.out.print("  - Dirty a page, and take a checkpoint\n");
+    final int[] syncs = new int[1];
+    BufMgrConfig config = new BufMgrConfig(8);
+    config.diskBackend = new MemoryDisk(64) {
+      public void sync() {
+        syncs[0]++;
+      }
+    };
+    config.partitions = 1;
+    config.bgWriterThreads = 0;
+    BufMgr bufmgr = new BufMgr(config);
+    Page pg = new Page();
+    PageId firstPid = bufmgr.newPage(pg, 1);
+    bufmgr.unpinPage(firstPid, UNPIN_DIRTY);
+    bufmgr.checkpoint();
+    if (syncs[0] != 1) {
+      status = FAIL;
+      System.err.print("*** The checkpoint synced the disk " + syncs[0] + " times instead of once\n");
+    }
+    bufmgr.freePage(firstPid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 26 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test26 ()
+
+  /**
+   * Frees pages in and out of the pool, and checks that each of them is
+   * deallocated on disk, but a pinned one is not.
+   */
+  protected boolean test27() {
+
+    System.out.print("\n  Test 27 frees pages that are in the pool "
+        + "and pages that are not\n");
+
+    final List<Integer> freed = new ArrayList<Integer>();
+    BufMgrConfig config = new BufMgrConfig(4);
+    config.diskBackend = new MemoryDisk(64) {
+      public void deallocatePage(PageId pageno) {
+        super.deallocatePage(pageno);
+        synchronized (freed) {
+          freed.add(pageno.pid);
+        }
+      }
+    };
+    config.readAhead = 0;
+    config.partitions = 1;
+    BufMgr bufmgr = new BufMgr(config);
+    int numPages = 4 * config.numbufs;
+    Page pg = new Page();
+    PageId pid = new PageId();
+    boolean status = PASS;
+
+    System.out.print("  - Use " + numPages + " pages in a pool of " + config.numbufs + ", and keep one pinned\n");
+    PageId firstPid = bufmgr.newPage(pg, numPages);
+    bufmgr.unpinPage(firstPid, UNPIN_CLEAN);
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      bufmgr.pinPage(pid, pg, PIN_DISKIO);
+      if (pid.pid != firstPid.pid + numPages - 1)
+        bufmgr.unpinPage(pid, UNPIN_DIRTY);
+    }
+
+    System.out.print("  - Free them all\n");
+    for (pid.pid = firstPid.pid; pid.pid < firstPid.pid + numPages; pid.pid = pid.pid + 1) {
+      try {
+        bufmgr.freePage(pid);
+        if (pid.pid == firstPid.pid + numPages - 1) {
+          status = FAIL;
+          System.err.print("*** A pinned page was freed\n");
+        }
+      } catch (IllegalArgumentException e) {
+        if (pid.pid != firstPid.pid + numPages - 1) {
+          status = FAIL;
+          System.err.print("*** Could not free page " + pid.pid + "\n");
+        }
+      }
+    }
+    if (status == PASS && (freed.size() != numPages - 1 || freed.contains(firstPid.pid + numPages - 1))) {
+      status = FAIL;
+      System.err.print("*** " + freed.size() + " pages were deallocated on disk, but there should be "
+          + (numPages - 1) + ", all but the pinned one\n");
+    }
+    pid.pid = firstPid.pid + numPages - 1;
+    bufmgr.unpinPage(pid, UNPIN_CLEAN);
+    bufmgr.freePage(pid);
+    bufmgr.shutdown();
+
+    if (status == PASS)
+      System.out.print("  Test 27 completed successfully.\n");
+
+    return status;
+
+  } // protected boolean test27 ()
+
 } // class BMTest extends TestDriver